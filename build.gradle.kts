@@ -9,11 +9,28 @@ repositories {
     mavenCentral()
 }
 
+// Benchmarks live in their own source set, so they are not part of the
+// normal build. Run them with `gradle jmh`.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks. Pass JMH options with --args, e.g. --args='DFABenchmark -f 1'."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import automata.CompiledDFA;
+import automata.DFA;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Matching and minimizing random DFAs. Matching compares the two engines:
+ * the {@link CompiledDFA} table, which {@link DFA#accepts(CharSequence)}
+ * also uses once it is compiled, and a {@link CompiledDFA#specialize()
+ * specialized} class (which falls back to the table for the larger sizes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DFABenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int states;
+
+    @Param({"10000"})
+    public int length;
+
+    private DFA dfa;
+    private CompiledDFA compiled;
+    private Predicate<CharSequence> specialized;
+    private String input;
+
+    @Setup
+    public void setup() {
+        dfa = Generated.randomDFA(states, 42);
+        compiled = dfa.compile();
+        specialized = compiled.specialize();
+        input = Generated.randomString(length, 7);
+    }
+
+    @Benchmark
+    public boolean compiledAccepts() {
+        return compiled.accepts(input);
+    }
+
+    @Benchmark
+    public boolean specializedAccepts() {
+        return specialized.test(input);
+    }
+
+    @Benchmark
+    public DFA minify() {
+        return dfa.minify();
+    }
+}
@@ -0,0 +1,125 @@
+package benchmark;
+
+import automata.DFA;
+import automata.NFA;
+import automata.components.Alphabet;
+import automata.components.DeterministicTransition;
+import automata.components.State;
+import automata.components.Transition;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generators for the random automata and inputs that the benchmarks run on.
+ * Every generator takes a seed, so each benchmark sees the same input on
+ * every run.
+ */
+public class Generated {
+    /** The alphabet every generated automaton uses. */
+    public static final Alphabet ALPHABET = Alphabet.withSymbols("abcd");
+
+    private Generated() {}
+
+    /**
+     * Create a DFA with random transitions. Every state is reachable, since
+     * state i+1 is always the target of some transition from state i.
+     * @param size the number of states.
+     * @param seed the seed for the random transitions.
+     * @return a DFA with exactly <c>size</c> states, about half accepting.
+     */
+    public static DFA randomDFA(int size, long seed) {
+        Random random = new Random(seed);
+        List<State> states = states(size);
+        DeterministicTransition tf = new DeterministicTransition();
+        Set<State> accepting = new HashSet<>();
+        for (int q = 0; q < size; q++) {
+            State state = states.get(q);
+            for (Character symbol : ALPHABET) {
+                tf.setState(state, symbol, states.get(random.nextInt(size)));
+            }
+            if (q + 1 < size) tf.setState(state, 'a', states.get(q + 1));
+            if (random.nextBoolean()) accepting.add(state);
+        }
+        return new DFA(new HashSet<>(states), ALPHABET, tf, states.get(0), accepting);
+    }
+
+    /**
+     * Create an NFA with random transitions: each state has one or two
+     * targets per symbol, and occasionally an epsilon transition. Like the
+     * NFAs built from regular expressions, transitions are local: targets are
+     * at most a few states away, so the simulation's state sets stay small.
+     * @param size the number of states.
+     * @param seed the seed for the random transitions.
+     * @return an NFA with exactly <c>size</c> states.
+     */
+    public static NFA randomNFA(int size, long seed) {
+        Random random = new Random(seed);
+        List<State> states = states(size);
+        Set<State> stateSet = new HashSet<>(states);
+        Transition tf = new Transition();
+        tf.initializeFor(stateSet, ALPHABET);
+        Set<State> accepting = new HashSet<>();
+        for (int q = 0; q < size; q++) {
+            State state = states.get(q);
+            for (Character symbol : ALPHABET) {
+                int targets = 1 + random.nextInt(2);
+                Set<State> next = new HashSet<>();
+                for (int i = 0; i < targets; i++) next.add(states.get(near(q, size, random)));
+                tf.setState(state, symbol, next);
+            }
+            if (random.nextInt(8) == 0) {
+                tf.setState(state, Alphabet.EPSILON, states.get(near(q, size, random)));
+            }
+            if (random.nextInt(4) == 0) accepting.add(state);
+        }
+        return new NFA(stateSet, ALPHABET, tf, states.get(0), accepting);
+    }
+
+    /**
+     * Create a random string over the generated alphabet.
+     * @param length the length of the string.
+     * @param seed the seed for the random symbols.
+     * @return a string of <c>length</c> random symbols.
+     */
+    public static String randomString(int length, long seed) {
+        Random random = new Random(seed);
+        char[] symbols = {'a', 'b', 'c', 'd'};
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(symbols[random.nextInt(symbols.length)]);
+        return sb.toString();
+    }
+
+    /**
+     * Create a random regular expression over the generated alphabet, as a
+     * union of random concatenations, some of them starred.
+     * @param terms the number of terms in the union. The NFA it parses into
+     *              has a number of states roughly proportional to this.
+     * @param seed the seed for the random terms.
+     * @return a regular expression.
+     */
+    public static String randomRegex(int terms, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < terms; t++) {
+            if (t > 0) sb.append('|');
+            String term = randomString(1 + random.nextInt(4), random.nextLong());
+            if (random.nextInt(3) == 0) sb.append('(').append(term).append(")*");
+            else sb.append(term);
+        }
+        return sb.toString();
+    }
+
+    private static int near(int state, int size, Random random) {
+        return Math.floorMod(state + random.nextInt(11) - 2, size);
+    }
+
+    private static List<State> states(int size) {
+        List<State> states = new ArrayList<>(size);
+        for (int q = 0; q < size; q++) states.add(new State("s" + q));
+        return states;
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import automata.CompiledNFA;
+import automata.DFA;
+import automata.NFA;
+import automata.NFAMatcher;
+import automata.operations.AutomataConvertor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulating and determinizing random NFAs. The subset construction is run
+ * on NFAs made from random DFAs, since the subsets of a random NFA grow
+ * exponentially with its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NFABenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int states;
+
+    @Param({"10000"})
+    public int length;
+
+    private NFA nfa;
+    private NFAMatcher matcher;
+    private NFA fromDFA;
+    private String input;
+
+    @Setup
+    public void setup() {
+        nfa = Generated.randomNFA(states, 42);
+        CompiledNFA compiled = nfa.compile();
+        matcher = compiled.matcher();
+        fromDFA = Generated.randomDFA(states, 42).toNFA();
+        input = Generated.randomString(length, 7);
+    }
+
+    @Benchmark
+    public boolean accepts() {
+        return nfa.accepts(input);
+    }
+
+    @Benchmark
+    public boolean matcherAccepts() {
+        return matcher.accepts(input);
+    }
+
+    @Benchmark
+    public DFA nfaToDFA() {
+        return AutomataConvertor.NFAtoDFA(fromDFA);
+    }
+}
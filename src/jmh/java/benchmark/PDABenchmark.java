@@ -0,0 +1,48 @@
+package benchmark;
+
+import automata.PDA;
+import grammar.CFG;
+import grammar.components.Grammar;
+import grammar.components.Symbol;
+import grammar.components.Variable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing with a PDA converted from a grammar. The PDA's size is fixed by the
+ * grammar, so the parameter is the length of the input instead: repeats of
+ * <c>aabbba</c>, which the grammar accepts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDABenchmark {
+    @Param({"6", "12", "24", "48"})
+    public int length;
+
+    private PDA pda;
+    private String input;
+
+    @Setup
+    public void setup() {
+        Grammar g = new Grammar();
+        g.addRule('S', "SS | A | B");
+        g.addRule('A', "aAb | ab");
+        g.addRule('B', "bBa | ba");
+        Set<Symbol> symbols = Set.of(new Symbol('a'), new Symbol('b'));
+        Set<Variable> variables = Set.of(new Variable("S"), new Variable("A"), new Variable("B"));
+        pda = new CFG(variables, symbols, g, new Variable('S')).convertToPDA();
+
+        input = "aabbba".repeat(Math.max(1, length / 6));
+    }
+
+    @Benchmark
+    public boolean accepts() {
+        return pda.accepts(input);
+    }
+}
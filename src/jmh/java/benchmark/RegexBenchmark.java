@@ -0,0 +1,64 @@
+package benchmark;
+
+import automata.AutomataBuilder;
+import automata.DFA;
+import automata.GNFA;
+import automata.NFA;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting between regular expressions and automata. Ripping states out of
+ * a GNFA can grow the expression exponentially, so {@link GNFA#toRegex()} is
+ * only measured on small DFAs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegexBenchmark {
+    @State(Scope.Benchmark)
+    public static class Parse {
+        @Param({"10", "100", "1000"})
+        public int terms;
+
+        private String regex;
+
+        @Setup
+        public void setup() {
+            regex = Generated.randomRegex(terms, 42);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Rip {
+        @Param({"4", "6", "8", "10"})
+        public int states;
+
+        private DFA dfa;
+        private GNFA gnfa;
+
+        @Setup(Level.Trial)
+        public void setupDFA() {
+            dfa = Generated.randomDFA(states, 42);
+        }
+
+        // toRegex rips states out of the GNFA, so every call needs a new one.
+        @Setup(Level.Invocation)
+        public void setupGNFA() {
+            gnfa = dfa.toGNFA();
+        }
+    }
+
+    @Benchmark
+    public NFA parseExpression(Parse parse) {
+        return AutomataBuilder.parseExpression(parse.regex, Generated.ALPHABET);
+    }
+
+    @Benchmark
+    public String toRegex(Rip rip) {
+        return rip.gnfa.toRegex();
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import automata.AutomataBuilder;
+import automata.MatchSpans;
+import automata.NFA;
+import automata.Searcher;
+import automata.components.Alphabet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding every match of an NFA in a string. <c>x|xx*y</c> over
+ * <c>xxx...</c> matches at every position, but the longest match from each
+ * one must read ahead to the end of the string to rule out the second
+ * alternative, so the time per length shows whether the search stays linear.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10000", "20000", "40000", "80000"})
+    public int length;
+
+    private Searcher pathological;
+    private Searcher random;
+    private String xs;
+    private String input;
+
+    @Setup
+    public void setup() {
+        NFA nfa = AutomataBuilder.parseExpression("x|xx*y", Alphabet.withSymbols("xy"));
+        pathological = nfa.searcher();
+        random = AutomataBuilder.parseExpression(Generated.randomRegex(10, 42), Generated.ALPHABET).searcher();
+        xs = "x".repeat(length);
+        input = Generated.randomString(length, 7);
+    }
+
+    @Benchmark
+    public MatchSpans readAhead() {
+        return pathological.findAll(xs);
+    }
+
+    @Benchmark
+    public MatchSpans randomRegex() {
+        return random.findAll(input);
+    }
+}
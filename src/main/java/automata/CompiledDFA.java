@@ -0,0 +1,591 @@
+package automata;
+
+import automata.components.Alphabet;
+import automata.components.DeterministicTransition;
+import automata.components.State;
+import automata.components.SymbolClasses;
+import automata.exception.AlphabetException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * A {@link DFA} flattened into integer tables for fast matching. <br>
+ * Every state is numbered from 0 to n-1, and every alphabet symbol is given a
+ * column according to its {@link SymbolClasses equivalence class}; symbols
+ * that no state can tell apart share a column. The transition function is
+ * then a single <c>int[]</c>, where δ(q, s) lives at
+ * <c>q * |classes| + column(s)</c>. The accepting states are kept in a
+ * {@link BitSet} indexed by state number. <br>
+ * Matching a string against this table does no hashing, no boxing, and no
+ * allocation; it is just an array lookup per character.
+ * <p>
+ * Some states decide the result on their own. A state is <i>dead</i> if no
+ * accepting state can be reached from it (such as a {@link State#trap()
+ * trap}), and <i>accepts forever</i> if no rejecting state can be reached from
+ * it. Both are found when compiling, so matching can stop as soon as it
+ * enters either kind of state.
+ * @implNote This is a snapshot of the DFA at the time it was compiled.
+ * Modifying the original DFA's transition function afterward will not affect
+ * the compiled version.
+ */
+public final class CompiledDFA {
+    /** The number of characters read from a stream at a time. */
+    private static final int CHUNK_SIZE = 8192;
+    /** The fewest characters worth handing to a separate parallel task. */
+    private static final int MIN_PARALLEL_CHUNK = 1 << 16;
+    /** How often, in symbols, a parallel chunk merges states that have converged. */
+    private static final int MERGE_INTERVAL = 64;
+    /** The most bytes of a file mapped into memory at a time. */
+    private static final long MAP_WINDOW = 1 << 28;
+    /** Marks a line that contains a byte not in the alphabet. */
+    private static final int INVALID = -1;
+
+    /** The original states, indexed by their state number. */
+    private final State[] states;
+    /** The number of columns in the transition table; one per symbol class. */
+    private final int stride;
+    /** The flattened transition table; see the class documentation. */
+    private final int[] table;
+    /** Maps a symbol to its column in the transition table. */
+    private final SymbolClasses columns;
+    /** The state number of the start state. */
+    private final int start;
+    /** The state numbers of all accepting states. */
+    private final BitSet accepting;
+    /** The state numbers of all states that cannot reach an accepting state. */
+    private final BitSet dead;
+    /** The state numbers of all states that cannot reach a rejecting state. */
+    private final BitSet acceptsForever;
+
+    /**
+     * Compile a DFA into its table representation. The DFA is assumed to be
+     * valid, which is guaranteed by the DFA constructor.
+     * @param dfa the DFA to compile.
+     */
+    CompiledDFA(DFA dfa) {
+        Alphabet alphabet = dfa.alphabet();
+        DeterministicTransition tf = dfa.transitionFunction();
+
+        states = dfa.states().toArray(new State[0]);
+        HashMap<State, Integer> stateNumbers = new HashMap<>();
+        for (int i = 0; i < states.length; i++) stateNumbers.put(states[i], i);
+
+        columns = SymbolClasses.partition(alphabet, dfa.states(), tf);
+        stride = columns.classCount();
+        table = new int[states.length * stride];
+        for (int q = 0; q < states.length; q++) {
+            for (int i = 0; i < stride; i++) {
+                State next = tf.transition(states[q], columns.representative(i));
+                table[q * stride + i] = stateNumbers.get(next);
+            }
+        }
+
+        start = stateNumbers.get(dfa.startState());
+        accepting = new BitSet(states.length);
+        for (State state : dfa.acceptingStates()) accepting.set(stateNumbers.get(state));
+
+        BitSet rejecting = new BitSet(states.length);
+        rejecting.set(0, states.length);
+        rejecting.andNot(accepting);
+        dead = canReach(accepting);
+        dead.flip(0, states.length);
+        acceptsForever = canReach(rejecting);
+        acceptsForever.flip(0, states.length);
+    }
+
+    /**
+     * Find every state that can reach one of the target states, by a
+     * breadth-first search backwards along the transitions.
+     * @param targets the state numbers to search backwards from.
+     * @return the state numbers of every state with a path into the targets,
+     * including the targets themselves.
+     */
+    private BitSet canReach(BitSet targets) {
+        int n = states.length;
+        // The predecessors of t are preds[predStart[t] .. predStart[t+1]).
+        int[] predStart = new int[n + 1];
+        for (int next : table) predStart[next + 1]++;
+        for (int i = 1; i <= n; i++) predStart[i] += predStart[i - 1];
+        int[] preds = new int[table.length];
+        int[] fill = predStart.clone();
+        for (int i = 0; i < table.length; i++) preds[fill[table[i]]++] = i / stride;
+
+        BitSet reached = (BitSet) targets.clone();
+        int[] queue = targets.stream().toArray();
+        queue = Arrays.copyOf(queue, n);
+        int tail = targets.cardinality();
+        for (int head = 0; head < tail; head++) {
+            int t = queue[head];
+            for (int i = predStart[t]; i < predStart[t + 1]; i++) {
+                if (reached.get(preds[i])) continue;
+                reached.set(preds[i]);
+                queue[tail++] = preds[i];
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Check if the compiled DFA would accept this string. Matching stops
+     * early once the DFA enters a state that is dead or accepts forever.
+     * @param string The string to check for acceptance.
+     * @return true iff this string is accepted; false otherwise.
+     * @throws AlphabetException if the string contains a symbol not in the
+     * alphabet before the result is decided. Symbols after that point are
+     * not checked.
+     * @see DFA#accepts(CharSequence)
+     */
+    public boolean accepts(CharSequence string) {
+        int state = start;
+        for (int i = 0, n = string.length(); i < n && !isDecided(state); i++) {
+            char c = string.charAt(i);
+            int column = column(c);
+            if (column < 0) {
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
+                        string, c
+                );
+                throw new AlphabetException(msg);
+            }
+            state = table[state * stride + column];
+        }
+        return accepting.get(state);
+    }
+
+    /**
+     * Check if the compiled DFA would accept the contents of a stream. The
+     * stream is read in fixed-size chunks, carrying the current state from
+     * one chunk to the next, so the input is never held in memory at once.
+     * @param reader The stream to check for acceptance. It is read until the
+     *               result is decided (usually to the end) but not closed.
+     * @return true iff the stream's contents are accepted; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     */
+    public boolean accepts(Reader reader) throws IOException {
+        char[] chunk = new char[CHUNK_SIZE];
+        int state = start;
+        long offset = 0;
+        for (int read = reader.read(chunk); read != -1 && !isDecided(state); read = reader.read(chunk)) {
+            state = run(state, chunk, read, offset);
+            offset += read;
+        }
+        return accepting.get(state);
+    }
+
+    /**
+     * Check if the compiled DFA would accept this string, reading it on
+     * several threads at once. <br>
+     * The string is split into chunks, and each chunk is read from every
+     * state at once, giving a table of which state the chunk ends in for each
+     * state it could start in. Neighbouring tables are then composed in a
+     * tree until one table covers the whole string, and the result is the
+     * entry for the start state.
+     * <p>
+     * Reading a chunk from every state costs more than reading it from one,
+     * but most DFAs quickly converge: different start states lead into the
+     * same state, and are only tracked once from then on. Strings too short
+     * to benefit are read on the calling thread.
+     * @param string The string to check for acceptance.
+     * @param pool The pool to run the chunks on.
+     * @return true iff this string is accepted; false otherwise.
+     * @throws AlphabetException if the string contains a symbol not in the
+     * alphabet. Unlike {@link #accepts(CharSequence)}, every symbol is
+     * checked.
+     */
+    public boolean acceptsParallel(CharSequence string, ForkJoinPool pool) {
+        int n = string.length();
+        int chunk = Math.max(MIN_PARALLEL_CHUNK, n / (4 * pool.getParallelism()) + 1);
+        if (n <= chunk) return accepting.get(runToEnd(string));
+        int[] endStates = pool.invoke(new ChunkTask(string, 0, n, chunk));
+        return accepting.get(endStates[start]);
+    }
+
+    /**
+     * Read a whole string from the start state. Unlike
+     * {@link #accepts(CharSequence)}, this does not stop once the result is
+     * decided, so every symbol is checked against the alphabet.
+     * @param string the string to read.
+     * @return the state reached after reading every symbol.
+     */
+    private int runToEnd(CharSequence string) {
+        int state = start;
+        for (int i = 0, n = string.length(); i < n; i++) {
+            int column = column(string.charAt(i));
+            if (column < 0) {
+                String msg = String.format(
+                        "Input contains symbol '%c' at position %d not in Automaton's alphabet.",
+                        string.charAt(i), i
+                );
+                throw new AlphabetException(msg);
+            }
+            state = table[state * stride + column];
+        }
+        return state;
+    }
+
+    /**
+     * Reads part of a string from every state, splitting itself in two until
+     * the parts are small enough to read directly.
+     */
+    private class ChunkTask extends RecursiveTask<int[]> {
+        private final CharSequence string;
+        private final int begin;
+        private final int end;
+        private final int chunk;
+
+        ChunkTask(CharSequence string, int begin, int end, int chunk) {
+            this.string = string;
+            this.begin = begin;
+            this.end = end;
+            this.chunk = chunk;
+        }
+
+        /**
+         * @return for each state number q, the state reached by reading this
+         * part of the string from q.
+         */
+        @Override
+        protected int[] compute() {
+            if (end - begin <= chunk) return runFromAll(string, begin, end);
+
+            int middle = begin + (end - begin) / 2;
+            ChunkTask left = new ChunkTask(string, begin, middle, chunk);
+            left.fork();
+            int[] second = new ChunkTask(string, middle, end, chunk).compute();
+            int[] first = left.join();
+            for (int q = 0; q < first.length; q++) first[q] = second[first[q]];
+            return first;
+        }
+    }
+
+    /**
+     * Read part of a string from every state at once.
+     * @param string the string to read part of.
+     * @param begin the index of the first symbol to read.
+     * @param end the index after the last symbol to read.
+     * @return for each state number q, the state reached by reading the
+     * symbols from q.
+     */
+    private int[] runFromAll(CharSequence string, int begin, int end) {
+        int n = states.length;
+        // Each start state q is tracked by the path at index path[q], and
+        // paths[0 .. count) are the current states of the distinct paths.
+        int[] path = new int[n];
+        int[] paths = new int[n];
+        for (int q = 0; q < n; q++) path[q] = paths[q] = q;
+        int count = n;
+
+        int[] mergedInto = new int[n];
+        int[] seenAt = new int[n];
+        int[] seenIn = new int[n];
+        int round = 0;
+        for (int i = begin; i < end; i++) {
+            int column = column(string.charAt(i));
+            if (column < 0) {
+                String msg = String.format(
+                        "Input contains symbol '%c' at position %d not in Automaton's alphabet.",
+                        string.charAt(i), i
+                );
+                throw new AlphabetException(msg);
+            }
+            for (int k = 0; k < count; k++) paths[k] = table[paths[k] * stride + column];
+
+            if (count == 1 || (i - begin) % MERGE_INTERVAL != 0) continue;
+            // Merge paths that have reached the same state.
+            round++;
+            int merged = 0;
+            for (int k = 0; k < count; k++) {
+                int state = paths[k];
+                if (seenIn[state] != round) {
+                    seenIn[state] = round;
+                    seenAt[state] = merged;
+                    paths[merged++] = state;
+                }
+                mergedInto[k] = seenAt[state];
+            }
+            if (merged == count) continue;
+            for (int q = 0; q < n; q++) path[q] = mergedInto[path[q]];
+            count = merged;
+        }
+
+        int[] endStates = new int[n];
+        for (int q = 0; q < n; q++) endStates[q] = paths[path[q]];
+        return endStates;
+    }
+
+    /**
+     * Check if the compiled DFA would accept the contents of a file. The file
+     * is memory-mapped and read as Latin-1: every byte is one symbol, so
+     * ASCII files are read as-is and nothing is decoded into a String.
+     * @param path The file to check for acceptance.
+     * @return true iff the file's contents are accepted; false otherwise.
+     * @throws IOException if the file cannot be read.
+     * @throws AlphabetException if the file contains a byte whose symbol is
+     * not in the alphabet before the result is decided.
+     */
+    public boolean acceptsFile(Path path) throws IOException {
+        int[] byteColumns = byteColumns();
+        int state = start;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size && !isDecided(state); offset += MAP_WINDOW) {
+                MappedByteBuffer window = channel.map(MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW, size - offset));
+                for (int i = 0, n = window.limit(); i < n && !isDecided(state); i++) {
+                    int column = byteColumns[window.get(i) & 0xFF];
+                    if (column < 0) {
+                        String msg = String.format(
+                                "Input contains symbol '%c' at position %d not in Automaton's alphabet.",
+                                (char) (window.get(i) & 0xFF), offset + i
+                        );
+                        throw new AlphabetException(msg);
+                    }
+                    state = table[state * stride + column];
+                }
+            }
+        }
+        return accepting.get(state);
+    }
+
+    /**
+     * Find every line of a file that the compiled DFA accepts. The file is
+     * memory-mapped and read as Latin-1, the same as {@link
+     * #acceptsFile(Path)}. Lines end with <c>\n</c> or <c>\r\n</c>, and
+     * the line terminator is not part of the line. A line containing a byte
+     * whose symbol is not in the alphabet is not accepted.
+     * @param path The file to search.
+     * @return the byte offsets of the start of every accepted line, in
+     * ascending order.
+     * @throws IOException if the file cannot be read.
+     */
+    public long[] matchingLines(Path path) throws IOException {
+        int[] byteColumns = byteColumns();
+        long[] matches = new long[16];
+        int matchCount = 0;
+
+        int state = start;
+        int beforeReturn = INVALID;
+        boolean afterReturn = false;
+        long lineStart = 0;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            for (long offset = 0; offset < size; offset += MAP_WINDOW) {
+                MappedByteBuffer window = channel.map(MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW, size - offset));
+                for (int i = 0, n = window.limit(); i < n; i++) {
+                    int b = window.get(i) & 0xFF;
+                    if (b == '\n') {
+                        int end = afterReturn ? beforeReturn : state;
+                        if (end != INVALID && accepting.get(end)) {
+                            if (matchCount == matches.length) matches = Arrays.copyOf(matches, matchCount * 2);
+                            matches[matchCount++] = lineStart;
+                        }
+                        state = start;
+                        afterReturn = false;
+                        lineStart = offset + i + 1;
+                        continue;
+                    }
+
+                    // Remember the state before a \r, in case it ends the line.
+                    afterReturn = b == '\r';
+                    if (afterReturn) beforeReturn = state;
+                    if (state == INVALID || dead.get(state)) continue;
+                    int column = byteColumns[b];
+                    state = column < 0 ? INVALID : table[state * stride + column];
+                }
+            }
+        }
+
+        if (lineStart < size && state != INVALID && accepting.get(state)) {
+            if (matchCount == matches.length) matches = Arrays.copyOf(matches, matchCount + 1);
+            matches[matchCount++] = lineStart;
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * Determine the column that each byte reads from, treating bytes as
+     * Latin-1 symbols.
+     * @return the column of every byte value, or -1 for bytes whose symbol is
+     * not in the alphabet.
+     */
+    private int[] byteColumns() {
+        int[] byteColumns = new int[256];
+        for (int b = 0; b < 256; b++) byteColumns[b] = column((char) b);
+        return byteColumns;
+    }
+
+    /**
+     * Run the DFA over a chunk of a larger input.
+     * @param state the number of the state to start the chunk in.
+     * @param chunk the characters to read.
+     * @param length the number of characters in the chunk to read.
+     * @param offset the position of the chunk in the whole input, for
+     *               error reporting.
+     * @return the number of the state the DFA is in after the chunk, or the
+     * first state that decides the result.
+     */
+    private int run(int state, char[] chunk, int length, long offset) {
+        for (int i = 0; i < length && !isDecided(state); i++) {
+            int column = column(chunk[i]);
+            if (column < 0) {
+                String msg = String.format(
+                        "Input contains symbol '%c' at position %d not in Automaton's alphabet.",
+                        chunk[i], offset + i
+                );
+                throw new AlphabetException(msg);
+            }
+            state = table[state * stride + column];
+        }
+        return state;
+    }
+
+    /**
+     * Create a new matcher that reads input for this DFA incrementally. Every
+     * matcher shares this table, and keeps only its own current state.
+     * @return a new matcher for this DFA, in the start state.
+     */
+    public DFAMatcher matcher() {
+        return new DFAMatcher(this);
+    }
+
+    /**
+     * Generate a class at runtime that matches strings against this DFA
+     * directly in bytecode, with no table lookups between states. DFAs with
+     * more than {@value DFASpecializer#DEFAULT_MAX_STATES} states use the
+     * table engine instead.
+     * @return a predicate that accepts exactly the strings this DFA accepts.
+     * @see #specialize(int)
+     */
+    public Predicate<CharSequence> specialize() {
+        return specialize(DFASpecializer.DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Generate a class at runtime that matches strings against this DFA
+     * directly in bytecode. Each state becomes a block of code that jumps to
+     * the next state's block, so the JIT can keep the whole DFA in branches.
+     * This pays off for small DFAs that match many strings; generating the
+     * class is far slower than compiling the table.
+     * @param maxStates the most states this DFA may have to be specialized.
+     *                  Larger DFAs, and those too large for a single method,
+     *                  use the table engine instead.
+     * @return a predicate that accepts exactly the strings this DFA accepts.
+     * It throws an {@link AlphabetException} for symbols not in the alphabet.
+     */
+    public Predicate<CharSequence> specialize(int maxStates) {
+        return DFASpecializer.specialize(this, maxStates);
+    }
+
+    /**
+     * Determine the column of the transition table that a symbol reads from.
+     * @param symbol the symbol to look up.
+     * @return the column for this symbol, or -1 if it is not in the alphabet.
+     */
+    public int column(char symbol) {
+        return columns.classOf(symbol);
+    }
+
+    /**
+     * Get the symbol classes that the columns of this table represent.
+     * @return the partition of the alphabet used to pick columns.
+     */
+    public SymbolClasses symbolClasses() {
+        return columns;
+    }
+
+    /**
+     * Perform a single transition.
+     * @param state the number of the current state.
+     * @param column the column of the symbol being read.
+     * @return the number of the next state.
+     */
+    public int transition(int state, int column) {
+        return table[state * stride + column];
+    }
+
+    /**
+     * Get the number of states in this DFA.
+     * @return the number of states; state numbers are below this value.
+     */
+    public int stateCount() {
+        return states.length;
+    }
+
+    /**
+     * Get the number of columns in the transition table. This is the number
+     * of symbol classes, which may be far smaller than the alphabet.
+     * @return the number of distinct symbol columns.
+     */
+    public int columnCount() {
+        return stride;
+    }
+
+    /**
+     * Get the number of the start state.
+     * @return the start state's number.
+     */
+    public int startState() {
+        return start;
+    }
+
+    /**
+     * Determine if a state is accepting.
+     * @param state the number of the state to check.
+     * @return true iff the state is one of the accepting states.
+     */
+    public boolean isAccepting(int state) {
+        return accepting.get(state);
+    }
+
+    /**
+     * Determine if a state is dead: no accepting state can be reached from
+     * it, so every string that leads there is rejected, however it continues.
+     * @param state the number of the state to check.
+     * @return true iff no accepting state is reachable from the state.
+     */
+    public boolean isDead(int state) {
+        return dead.get(state);
+    }
+
+    /**
+     * Determine if a state accepts forever: only accepting states can be
+     * reached from it, so every string that leads there is accepted, however
+     * it continues. This is useful for checking if a string has an accepted
+     * prefix.
+     * @param state the number of the state to check.
+     * @return true iff no rejecting state is reachable from the state.
+     */
+    public boolean acceptsForever(int state) {
+        return acceptsForever.get(state);
+    }
+
+    /**
+     * Determine if the rest of the input can no longer change the result.
+     * @param state the number of the current state.
+     * @return true iff the state is dead or accepts forever.
+     */
+    private boolean isDecided(int state) {
+        return dead.get(state) || acceptsForever.get(state);
+    }
+
+    /**
+     * Get the original state that a state number refers to.
+     * @param state the number of the state.
+     * @return the State object from the DFA that was compiled.
+     */
+    public State state(int state) {
+        return states[state];
+    }
+}
@@ -0,0 +1,159 @@
+package automata;
+
+import automata.components.EpsilonClosureTable;
+import automata.components.State;
+import automata.components.SymbolClasses;
+import automata.components.Transition;
+
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A {@link NFA} flattened into integer tables for simulation. <br>
+ * Every state is numbered from 0 to n-1, and every symbol is given a column
+ * according to its {@link SymbolClasses equivalence class}. For every state
+ * and column, the states the symbol leads to are stored as a run of a single
+ * <c>int[]</c>. The epsilon closure of every state is precomputed with an
+ * {@link EpsilonClosureTable} and stored the same way, so that following
+ * epsilon transitions is a walk over a precomputed list.
+ * <p>
+ * The compiled NFA is immutable and can be shared; the mutable state of a
+ * simulation is kept in an {@link NFAMatcher}.
+ */
+public final class CompiledNFA {
+    /** The original states, indexed by their state number. */
+    private final State[] states;
+    /** Maps a symbol to its column in the transition table. */
+    private final SymbolClasses columns;
+    /** The number of columns in the transition table. */
+    private final int stride;
+    /** The targets of state q on column c are moves[moveStart[q*stride+c] .. moveStart[q*stride+c+1]). */
+    final int[] moveStart;
+    /** The targets of every state and column, end to end. */
+    final int[] moves;
+    /** The closure of state q is closures[closureStart[q] .. closureStart[q+1]). */
+    final int[] closureStart;
+    /** The epsilon closures of every state, end to end. */
+    final int[] closures;
+    /** The state number of the start state. */
+    private final int start;
+    /** The state numbers of all accepting states. */
+    private final BitSet accepting;
+
+    /**
+     * Compile an NFA into its table representation. The NFA is assumed to be
+     * valid, which is guaranteed by the NFA constructor.
+     * @param nfa the NFA to compile.
+     */
+    CompiledNFA(NFA nfa) {
+        EpsilonClosureTable closureTable = nfa.epsilonClosureTable();
+        Transition tf = nfa.transitionFunction();
+        int n = closureTable.size();
+
+        states = new State[n];
+        for (int q = 0; q < n; q++) states[q] = closureTable.state(q);
+
+        closureStart = new int[n + 1];
+        for (int q = 0; q < n; q++) {
+            closureStart[q + 1] = closureStart[q] + closureTable.closureOf(q).cardinality();
+        }
+        closures = new int[closureStart[n]];
+        for (int q = 0; q < n; q++) {
+            BitSet closure = closureTable.closureOf(q);
+            int at = closureStart[q];
+            for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) closures[at++] = i;
+        }
+
+        columns = SymbolClasses.partition(nfa.alphabet(), nfa.states(), tf);
+        stride = columns.classCount();
+        moveStart = new int[n * stride + 1];
+        int[][] targets = new int[n * stride][];
+        for (int q = 0; q < n; q++) {
+            for (int c = 0; c < stride; c++) {
+                Set<State> next = tf.transition(states[q], columns.representative(c));
+                Set<State> distinct = next == null ? Set.of() : new LinkedHashSet<>(next);
+                targets[q * stride + c] = distinct.stream().mapToInt(closureTable::indexOf).toArray();
+                moveStart[q * stride + c + 1] = moveStart[q * stride + c] + targets[q * stride + c].length;
+            }
+        }
+        moves = new int[moveStart[n * stride]];
+        for (int i = 0; i < targets.length; i++) {
+            System.arraycopy(targets[i], 0, moves, moveStart[i], targets[i].length);
+        }
+
+        start = closureTable.indexOf(nfa.startState());
+        accepting = new BitSet(n);
+        for (State state : nfa.acceptingStates()) accepting.set(closureTable.indexOf(state));
+    }
+
+    /**
+     * Create a new matcher that simulates this NFA. A matcher can be reused
+     * for any number of strings, but not by several threads at once.
+     * @return a new matcher for this NFA.
+     */
+    public NFAMatcher matcher() {
+        return new NFAMatcher(this);
+    }
+
+    /**
+     * Create a lazily-built DFA for this NFA, which determinizes only the
+     * states that are actually reached while reading strings.
+     * @param cacheBytes the most memory the DFA's state cache may use.
+     * @return a new lazy DFA for this NFA.
+     */
+    public LazyDFA lazyDFA(long cacheBytes) {
+        return new LazyDFA(this, cacheBytes);
+    }
+
+    /**
+     * Determine the column of the transition table that a symbol reads from.
+     * @param symbol the symbol to look up.
+     * @return the column for this symbol, or -1 if it is not in the alphabet.
+     */
+    public int column(char symbol) {
+        return columns.classOf(symbol);
+    }
+
+    /**
+     * Get the number of states in this NFA.
+     * @return the number of states; state numbers are below this value.
+     */
+    public int stateCount() {
+        return states.length;
+    }
+
+    /**
+     * Get the number of columns in the transition table.
+     * @return the number of distinct symbol columns.
+     */
+    public int columnCount() {
+        return stride;
+    }
+
+    /**
+     * Get the number of the start state.
+     * @return the start state's number.
+     */
+    public int startState() {
+        return start;
+    }
+
+    /**
+     * Determine if a state is accepting.
+     * @param state the number of the state to check.
+     * @return true iff the state is one of the accepting states.
+     */
+    public boolean isAccepting(int state) {
+        return accepting.get(state);
+    }
+
+    /**
+     * Get the original state that a state number refers to.
+     * @param state the number of the state.
+     * @return the State object from the NFA that was compiled.
+     */
+    public State state(int state) {
+        return states[state];
+    }
+}
@@ -2,14 +2,24 @@ package automata;
 
 import automata.components.Alphabet;
 import automata.components.DeterministicTransition;
+import automata.components.IdentityCache;
 import automata.components.State;
 import automata.components.StatePair;
 import automata.exception.AlphabetException;
 import automata.exception.InvalidAutomatonException;
 import automata.exception.InvalidStateException;
 import automata.operations.AutomataConvertor;
-
+import automata.operations.AutomataMinifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +41,8 @@ import java.util.stream.Collectors;
  */
 public record DFA(Set<State> states, Alphabet alphabet, DeterministicTransition transitionFunction, State startState,
                   Set<State> acceptingStates) {
+    /** The compiled form of every DFA, built on first use. */
+    private static final IdentityCache<DFA, CompiledDFA> COMPILED = new IdentityCache<>(CompiledDFA::new);
 
     public DFA(
             Set<State> states,
@@ -101,35 +113,118 @@ public record DFA(Set<State> states, Alphabet alphabet, DeterministicTransition
      * ends up in one of the accepting states.
      * @param string The string to check for acceptance.
      * @return true iff this string is accepted; false otherwise.
+     * @implNote This uses the cached {@link #compile() compiled} form of
+     * this DFA, which is built by the first call.
      */
-    public boolean accepts(String string) {
-        State state = startState;
-        for (Character c : string.toCharArray()) {
-            if (!alphabet.contains(c)) {
-                String msg = String.format(
-                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
-                        string, c
-                );
-                throw new AlphabetException(msg);
-            }
-            State nextState = transitionFunction.transition(state, c);
-            if (nextState == null) {
-                String msg = String.format(
-                        "Illegal transition: Transition δ(%s, %c) is undefined!",
-                        state, c
-                );
-                throw new InvalidAutomatonException(msg);
-            }
-            if (!states.contains(nextState)) {
-                String msg = String.format(
-                        "Illegal transition: Transition δ(%s, %c) does not map to state set!",
-                        state, c
-                );
-                throw new InvalidAutomatonException(msg);
-            }
-            state = nextState;
-        }
-        return acceptingStates.contains(state);
+    public boolean accepts(CharSequence string) {
+        return compile().accepts(string);
+    }
+
+    /**
+     * Check if this DFA would accept this string, splitting the work across
+     * the threads of a pool. This only pays off for very long strings;
+     * shorter ones are checked on the calling thread.
+     * @param string The string to check for acceptance.
+     * @param pool The pool to run the work on.
+     * @return true iff this string is accepted; false otherwise.
+     * @see CompiledDFA#acceptsParallel(CharSequence, ForkJoinPool)
+     */
+    public boolean acceptsParallel(CharSequence string, ForkJoinPool pool) {
+        return compile().acceptsParallel(string, pool);
+    }
+
+    /**
+     * Check if this DFA would accept the contents of a stream. The stream is
+     * read in fixed-size chunks, so arbitrarily large inputs can be checked
+     * in constant memory.
+     * @param reader The stream to check for acceptance. It is read until the
+     *               result is decided (usually to the end) but not closed.
+     * @return true iff the stream's contents are accepted; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @see CompiledDFA#accepts(Reader)
+     */
+    public boolean accepts(Reader reader) throws IOException {
+        return compile().accepts(reader);
+    }
+
+    /**
+     * Check if this DFA would accept the contents of a stream of bytes.
+     * @param stream The stream to check for acceptance. It is read until the
+     *               result is decided (usually to the end) but not closed.
+     * @param charset The encoding used to decode the stream's bytes.
+     * @return true iff the stream's contents are accepted; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @see #accepts(Reader)
+     */
+    public boolean accepts(InputStream stream, Charset charset) throws IOException {
+        return accepts(new InputStreamReader(stream, charset));
+    }
+
+    /**
+     * Check if this DFA would accept the contents of a file, reading the
+     * file's bytes directly as Latin-1 symbols.
+     * @param path The file to check for acceptance.
+     * @return true iff the file's contents are accepted; false otherwise.
+     * @throws IOException if the file cannot be read.
+     * @see CompiledDFA#acceptsFile(Path)
+     */
+    public boolean acceptsFile(Path path) throws IOException {
+        return compile().acceptsFile(path);
+    }
+
+    /**
+     * Find every line of a file that this DFA accepts, reading the file's
+     * bytes directly as Latin-1 symbols.
+     * @param path The file to search.
+     * @return the byte offsets of the start of every accepted line.
+     * @throws IOException if the file cannot be read.
+     * @see CompiledDFA#matchingLines(Path)
+     */
+    public long[] matchingLines(Path path) throws IOException {
+        return compile().matchingLines(path);
+    }
+
+    /**
+     * Compile this DFA into a flat transition table. The compiled DFA
+     * accepts exactly the same strings as this one, but matches them without
+     * any hashing or allocation.
+     * @return a table-based equivalent of this DFA.
+     * @implNote The compiled DFA is built once per DFA object and cached, so
+     * every other method here can use it cheaply. Changing the transition
+     * function after the first call is not seen by the cached form.
+     * @see CompiledDFA
+     */
+    public CompiledDFA compile() {
+        return COMPILED.get(this);
+    }
+
+    /**
+     * Generate a class at runtime that matches strings against this DFA
+     * directly in bytecode. Large DFAs use the table engine instead.
+     * @return a predicate that accepts exactly the strings this DFA accepts.
+     * @see CompiledDFA#specialize()
+     */
+    public Predicate<CharSequence> specialize() {
+        return compile().specialize();
+    }
+
+    /**
+     * Generate a class at runtime that matches strings against this DFA
+     * directly in bytecode, if it has at most a given number of states.
+     * @param maxStates the most states this DFA may have to be specialized.
+     * @return a predicate that accepts exactly the strings this DFA accepts.
+     * @see CompiledDFA#specialize(int)
+     */
+    public Predicate<CharSequence> specialize(int maxStates) {
+        return compile().specialize(maxStates);
+    }
+
+    /**
+     * Create a matcher that reads input for this DFA incrementally.
+     * @return a new, resumable matcher for this DFA.
+     */
+    public DFAMatcher matcher() {
+        return compile().matcher();
     }
 
     /**
@@ -200,73 +295,6 @@ public record DFA(Set<State> states, Alphabet alphabet, DeterministicTransition
         return false;
     }
 
-    private Set<StatePair> allStatePairs() {
-        Set<StatePair> pairs = new HashSet<>();
-        for (State first : states) {
-            for (State second : states) {
-                pairs.add(new StatePair(first, second));
-            }
-        }
-        return pairs;
-    }
-
-    /**
-     * Perform a single step in the "Determine all distinguishable pairs"
-     * function.
-     * @param unknownPairs Pairs whose distinguishable-ness are unknown.
-     * @param distinguishable Pairs known to be distinguishable.
-     * @return Pairs that can be proven to be distinguishable.
-     */
-    private Set<StatePair> indistinguishablePairStep(Set<StatePair> unknownPairs, Set<StatePair> distinguishable) {
-        Set<StatePair> newDist = new HashSet<>();
-        for (StatePair pair : unknownPairs) {
-            if (distinguishable.contains(pair)) {
-                newDist.add(pair);
-                continue;
-            }
-            boolean allAreDist = true;
-            for (Character symbol : alphabet) {
-                State firstNext = transitionFunction.transition(pair.first(), symbol);
-                State secondNext = transitionFunction.transition(pair.second(), symbol);
-
-                StatePair pairNext = new StatePair(firstNext, secondNext);
-                if (!distinguishable.contains(pairNext)) {
-                    allAreDist = false;
-                    break;
-                }
-            }
-
-            if (allAreDist) newDist.add(pair);
-        }
-        return newDist;
-    }
-
-    /**
-     * Determine every single pair of indistinguishable states in this DFA.
-     * Indistinguishable states are defined as states where, starting from either
-     * state and providing ANY string in the DFA's alphabet, both states agree
-     * on whether the string will be accepted or rejected from that state.
-     */
-    private Set<StatePair> indistinguishablePairs() {
-        Set<StatePair> unknownPairs = allStatePairs().stream()
-                .filter(x -> !x.first().equals(x.second()))
-                .collect(Collectors.toSet());
-
-        Set<StatePair> distinguishable = unknownPairs.stream()
-                .filter(x -> acceptingStates.contains(x.first()) ^ acceptingStates.contains(x.second()))
-                .collect(Collectors.toSet());
-
-        Set<StatePair> nowDistinguishable;
-
-        do {
-            nowDistinguishable = indistinguishablePairStep(unknownPairs, distinguishable);
-            unknownPairs.removeAll(nowDistinguishable);
-            distinguishable.addAll(nowDistinguishable);
-        } while (!nowDistinguishable.isEmpty());
-
-        return unknownPairs;
-    }
-
     public Set<State> reachable() {
         Set<State> visitable = new HashSet<>();
         Queue<State> toVisit = new LinkedList<>();
@@ -291,36 +319,10 @@ public record DFA(Set<State> states, Alphabet alphabet, DeterministicTransition
      * @return a copy of this DFA with states removed and the transition
      * function modified to ensure the number of states is as small
      * as possible.
+     * @see AutomataMinifier#hopcroft(DFA)
      */
     public DFA minify() {
-        Set<State> reached = reachable();
-        Set<StatePair> notDistPairs = indistinguishablePairs();
-
-        DeterministicTransition tf = new DeterministicTransition();
-        tf.setDefaults(reached, alphabet);
-        tf.copyFrom(transitionFunction, alphabet);
-
-        for (StatePair pair : notDistPairs) {
-            // If either thing in the pair is unreachable, ignore it.
-            if (!reached.contains(pair.first()) || !reached.contains(pair.second())) continue;
-            for (State now : reached) {
-                for (Character symbol : alphabet) {
-                    if (tf.transition(now, symbol).equals(pair.first())) {
-                        // Redirect everything from first to second.
-                        tf.setState(now, symbol, pair.second());
-                    }
-                }
-            }
-            // Drop back and punt indistinguishable states.
-            tf.remove(pair.first());
-            reached.remove(pair.first());
-        }
-
-        Set<State> accepted = new HashSet<>(acceptingStates);
-        accepted.retainAll(reached);
-
-        // TODO: what happens if startState is minified out?
-        return new DFA(reached, alphabet, tf, startState, accepted);
+        return AutomataMinifier.hopcroft(this);
     }
 
     /**
@@ -0,0 +1,81 @@
+package automata;
+
+import automata.exception.AlphabetException;
+
+/**
+ * A {@link Matcher} for a {@link CompiledDFA}. The only state it keeps is the
+ * number of the current state; the table itself is shared between every
+ * matcher of the same compiled DFA.
+ */
+public class DFAMatcher implements Matcher {
+    /** The DFA being matched against. */
+    private final CompiledDFA dfa;
+    /** The number of the current state. */
+    private int state;
+
+    /**
+     * Create a matcher for a DFA, starting in its start state.
+     * @param dfa the DFA to match against.
+     */
+    DFAMatcher(CompiledDFA dfa) {
+        this.dfa = dfa;
+        this.state = dfa.startState();
+    }
+
+    @Override
+    public void feed(CharSequence input) {
+        int state = this.state;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            int column = dfa.column(c);
+            if (column < 0) {
+                this.state = state;
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
+                        input, c
+                );
+                throw new AlphabetException(msg);
+            }
+            state = dfa.transition(state, column);
+        }
+        this.state = state;
+    }
+
+    @Override
+    public boolean isAccepting() {
+        return dfa.isAccepting(state);
+    }
+
+    /**
+     * {@inheritDoc}
+     * For a DFA this is exact: a live matcher can always still be accepted.
+     * @see CompiledDFA#isDead(int)
+     */
+    @Override
+    public boolean isDead() {
+        return dfa.isDead(state);
+    }
+
+    /**
+     * Determine if the input fed so far will be accepted, no matter what is
+     * fed next.
+     * @return true iff every continuation of the input is accepted.
+     * @see CompiledDFA#acceptsForever(int)
+     */
+    public boolean acceptsForever() {
+        return dfa.acceptsForever(state);
+    }
+
+    @Override
+    public void reset() {
+        state = dfa.startState();
+    }
+
+    /**
+     * Get the number of the current state.
+     * @return the current state's number in the compiled DFA.
+     */
+    public int currentState() {
+        return state;
+    }
+}
@@ -0,0 +1,363 @@
+package automata;
+
+import automata.exception.AlphabetException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Generates a class at runtime whose code <i>is</i> a particular DFA, rather
+ * than a loop that reads a transition table. <br>
+ * Every state becomes a block of bytecode that reads the next symbol, finds
+ * its column, and jumps straight to the block of the next state with a
+ * <c>tableswitch</c>. The current state is the position in the code, so the
+ * JIT can compile the whole DFA into direct branches with nothing kept in
+ * memory but the input position.
+ * <p>
+ * The generated method returns the number of the state the DFA stops in, or
+ * <c>-(i + 1)</c> if the symbol at index i is not in the alphabet. The class
+ * is defined as a hidden class, so it is unloaded along with the matcher.
+ * @implNote The class file is written by hand, at version 49 so that it needs
+ * no stack map frames. Each state takes roughly 40 + 4·|columns| bytes of
+ * code, and a method is limited to 64KB, so large DFAs fall back to the
+ * table engine.
+ */
+final class DFASpecializer {
+    /** The most states a DFA may have to be specialized by default. */
+    static final int DEFAULT_MAX_STATES = 512;
+    /** The most bytes of code allowed in a single method by the JVM. */
+    private static final int MAX_CODE_SIZE = 65535;
+    /** The internal name of the generated class. */
+    private static final String CLASS_NAME = "automata/SpecializedDFA";
+
+    // Constant pool indices of the entries written by writeConstantPool.
+    private static final int THIS_CLASS = 2;
+    private static final int OBJECT_CLASS = 4;
+    private static final int FUNCTION_CLASS = 6;
+    private static final int INIT_NAME = 7;
+    private static final int INIT_DESCRIPTOR = 8;
+    private static final int OBJECT_INIT = 11;
+    private static final int FIELD_NAME = 12;
+    private static final int FIELD_DESCRIPTOR = 13;
+    private static final int FIELD = 15;
+    private static final int APPLY_NAME = 16;
+    private static final int APPLY_DESCRIPTOR = 17;
+    private static final int CHAR_SEQUENCE_CLASS = 19;
+    private static final int LENGTH = 23;
+    private static final int CHAR_AT = 27;
+    private static final int CODE = 28;
+    private static final int CONSTANT_POOL_SIZE = 29;
+
+    // Local variable slots in the generated applyAsInt.
+    private static final int STRING = 2;
+    private static final int LENGTH_LOCAL = 3;
+    private static final int CLASS_TABLE = 4;
+    private static final int POSITION = 5;
+
+    private DFASpecializer() {}
+
+    /**
+     * Create a specialized matcher for a compiled DFA, if it is small enough.
+     * @param dfa the DFA to specialize.
+     * @param maxStates the most states the DFA may have. Larger DFAs are
+     *                  matched with the table engine instead.
+     * @return a predicate that accepts exactly the strings the DFA accepts.
+     */
+    static Predicate<CharSequence> specialize(CompiledDFA dfa, int maxStates) {
+        int columns = dfa.columnCount();
+        if (dfa.stateCount() > Math.min(maxStates, Short.MAX_VALUE) || columns == 0 || codeSize(dfa) > MAX_CODE_SIZE) {
+            return dfa::accepts;
+        }
+
+        ToIntFunction<CharSequence> run;
+        try {
+            byte[] bytes = generate(dfa);
+            Class<?> generated = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            @SuppressWarnings("unchecked")
+            ToIntFunction<CharSequence> instance = (ToIntFunction<CharSequence>) generated
+                    .getConstructor(char[].class)
+                    .newInstance((Object) dfa.symbolClasses().lookupTable());
+            run = instance;
+        } catch (ReflectiveOperationException e) {
+            return dfa::accepts;
+        }
+
+        return string -> {
+            int result = run.applyAsInt(string);
+            if (result < 0) {
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
+                        string, string.charAt(-result - 1)
+                );
+                throw new AlphabetException(msg);
+            }
+            return dfa.isAccepting(result);
+        };
+    }
+
+    /**
+     * Determine how many bytes of code the state blocks of a DFA will need.
+     * @param dfa the DFA to measure.
+     * @return the size of the generated applyAsInt method, in bytes.
+     */
+    private static int codeSize(CompiledDFA dfa) {
+        int size = PROLOGUE_SIZE + REJECT_SIZE;
+        for (int q = 0; q < dfa.stateCount(); q++) size += blockSize(dfa, q, size);
+        return size;
+    }
+
+    /** The size of the code before the first state block. */
+    private static final int PROLOGUE_SIZE = 26;
+    /** The size of the block that reports a symbol not in the alphabet. */
+    private static final int REJECT_SIZE = 4;
+
+    /**
+     * Determine the size of the block of code for a state.
+     * @param dfa the DFA being generated.
+     * @param state the number of the state.
+     * @param offset the position of the block in the method, which decides
+     *               the padding before its tableswitch.
+     * @return the size of the block, in bytes.
+     */
+    private static int blockSize(CompiledDFA dfa, int state, int offset) {
+        if (isDecided(dfa, state)) return 4;
+        // The end-of-input check takes 10 bytes and reading the next symbol's
+        // class takes 14, then the tableswitch is padded to a multiple of 4.
+        int switchAt = offset + 24;
+        int padding = 3 - switchAt % 4;
+        return 24 + 1 + padding + 12 + 4 * dfa.columnCount();
+    }
+
+    /**
+     * Determine if the rest of the input can no longer change the result
+     * once the DFA is in a state.
+     * @param dfa the DFA being generated.
+     * @param state the number of the state.
+     * @return true iff the state is dead or accepts forever.
+     */
+    private static boolean isDecided(CompiledDFA dfa, int state) {
+        return dfa.isDead(state) || dfa.acceptsForever(state);
+    }
+
+    /**
+     * Write the class file for a DFA.
+     * @param dfa the DFA to generate a class for.
+     * @return the bytes of the class file.
+     */
+    private static byte[] generate(CompiledDFA dfa) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            writeConstantPool(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(THIS_CLASS);
+            out.writeShort(OBJECT_CLASS);
+            out.writeShort(1);
+            out.writeShort(FUNCTION_CLASS);
+
+            out.writeShort(1);
+            out.writeShort(0x0012); // private final
+            out.writeShort(FIELD_NAME);
+            out.writeShort(FIELD_DESCRIPTOR);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            writeMethod(out, INIT_NAME, INIT_DESCRIPTOR, 2, 2, constructorCode());
+            writeMethod(out, APPLY_NAME, APPLY_DESCRIPTOR, 3, 6, applyCode(dfa));
+            out.writeShort(0);
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the constant pool. The indices of its entries are the constants
+     * at the top of this class.
+     * @param out the class file being written.
+     * @throws IOException never, since the output is in memory.
+     */
+    private static void writeConstantPool(DataOutputStream out) throws IOException {
+        out.writeShort(CONSTANT_POOL_SIZE);
+        utf8(out, CLASS_NAME);                                   // 1
+        reference(out, 7, 1);                                    // 2: this class
+        utf8(out, "java/lang/Object");                           // 3
+        reference(out, 7, 3);                                    // 4: Object
+        utf8(out, "java/util/function/ToIntFunction");           // 5
+        reference(out, 7, 5);                                    // 6: ToIntFunction
+        utf8(out, "<init>");                                     // 7
+        utf8(out, "([C)V");                                      // 8
+        utf8(out, "()V");                                        // 9
+        reference(out, 12, 7, 9);                                // 10: <init>()V
+        reference(out, 10, OBJECT_CLASS, 10);                    // 11: Object.<init>
+        utf8(out, "classOf");                                    // 12
+        utf8(out, "[C");                                         // 13
+        reference(out, 12, FIELD_NAME, FIELD_DESCRIPTOR);        // 14: classOf:[C
+        reference(out, 9, THIS_CLASS, 14);                       // 15: this.classOf
+        utf8(out, "applyAsInt");                                 // 16
+        utf8(out, "(Ljava/lang/Object;)I");                      // 17
+        utf8(out, "java/lang/CharSequence");                     // 18
+        reference(out, 7, 18);                                   // 19: CharSequence
+        utf8(out, "length");                                     // 20
+        utf8(out, "()I");                                        // 21
+        reference(out, 12, 20, 21);                              // 22: length()I
+        reference(out, 11, CHAR_SEQUENCE_CLASS, 22);             // 23: CharSequence.length
+        utf8(out, "charAt");                                     // 24
+        utf8(out, "(I)C");                                       // 25
+        reference(out, 12, 24, 25);                              // 26: charAt(I)C
+        reference(out, 11, CHAR_SEQUENCE_CLASS, 26);             // 27: CharSequence.charAt
+        utf8(out, "Code");                                       // 28
+    }
+
+    private static void utf8(DataOutputStream out, String value) throws IOException {
+        out.writeByte(1);
+        out.writeUTF(value);
+    }
+
+    private static void reference(DataOutputStream out, int tag, int... indices) throws IOException {
+        out.writeByte(tag);
+        for (int index : indices) out.writeShort(index);
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001); // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(CODE);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    /**
+     * Generate the constructor, which stores the symbol class table.
+     * @return the bytecode of the constructor.
+     */
+    private static byte[] constructorCode() {
+        Code code = new Code(8);
+        code.u1(0x2A);                  // aload_0
+        code.u1(0xB7).u2(OBJECT_INIT);  // invokespecial Object.<init>
+        code.u1(0x2A);                  // aload_0
+        code.u1(0x2B);                  // aload_1
+        code.u1(0xB5).u2(FIELD);        // putfield classOf
+        code.u1(0xB1);                  // return
+        return code.toArray();
+    }
+
+    /**
+     * Generate applyAsInt, with one block of code per state.
+     * @param dfa the DFA to generate code for.
+     * @return the bytecode of the method.
+     */
+    private static byte[] applyCode(CompiledDFA dfa) {
+        int n = dfa.stateCount();
+        int[] blockAt = new int[n];
+        int offset = PROLOGUE_SIZE;
+        for (int q = 0; q < n; q++) {
+            blockAt[q] = offset;
+            offset += blockSize(dfa, q, offset);
+        }
+        int rejectAt = offset;
+
+        Code code = new Code(offset + REJECT_SIZE);
+        code.u1(0x2B);                                  // aload_1
+        code.u1(0xC0).u2(CHAR_SEQUENCE_CLASS);          // checkcast CharSequence
+        code.u1(0x4D);                                  // astore_2
+        code.u1(0x2C);                                  // aload_2
+        code.u1(0xB9).u2(LENGTH).u1(1).u1(0);           // invokeinterface length
+        code.u1(0x3E);                                  // istore_3
+        code.u1(0x2A);                                  // aload_0
+        code.u1(0xB4).u2(FIELD);                        // getfield classOf
+        code.u1(0x3A).u1(CLASS_TABLE);                  // astore 4
+        code.u1(0x03);                                  // iconst_0
+        code.u1(0x36).u1(POSITION);                     // istore 5
+        int gotoAt = code.size();
+        code.u1(0xC8).u4(blockAt[dfa.startState()] - gotoAt); // goto_w start
+
+        for (int q = 0; q < n; q++) {
+            if (isDecided(dfa, q)) {
+                code.u1(0x11).u2(q);                    // sipush q
+                code.u1(0xAC);                          // ireturn
+                continue;
+            }
+            int checkAt = code.size();
+            code.u1(0x15).u1(POSITION);                 // iload 5
+            code.u1(0x1D);                              // iload_3
+            code.u1(0xA1).u2(7);                        // if_icmplt next symbol
+            code.u1(0x11).u2(q);                        // sipush q
+            code.u1(0xAC);                              // ireturn
+            code.u1(0x19).u1(CLASS_TABLE);              // aload 4
+            code.u1(0x2C);                              // aload_2
+            code.u1(0x15).u1(POSITION);                 // iload 5
+            code.u1(0xB9).u2(CHAR_AT).u1(2).u1(0);      // invokeinterface charAt
+            code.u1(0x34);                              // caload
+            code.u1(0x84).u1(POSITION).u1(1);           // iinc 5 1
+
+            int switchAt = code.size();
+            code.u1(0xAA);                              // tableswitch
+            while (code.size() % 4 != 0) code.u1(0);
+            // Classes are stored plus one, so 0 (not in the alphabet) is the default.
+            code.u4(rejectAt - switchAt);
+            code.u4(1);
+            code.u4(dfa.columnCount());
+            for (int c = 0; c < dfa.columnCount(); c++) {
+                code.u4(blockAt[dfa.transition(q, c)] - switchAt);
+            }
+            assert code.size() - checkAt == blockSize(dfa, q, checkAt);
+        }
+
+        code.u1(0x15).u1(POSITION);                     // iload 5
+        code.u1(0x74);                                  // ineg
+        code.u1(0xAC);                                  // ireturn
+        return code.toArray();
+    }
+
+    /**
+     * A growable buffer of bytecode.
+     */
+    private static class Code {
+        private byte[] bytes;
+        private int size;
+
+        Code(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        Code u1(int value) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, Math.max(16, size * 2));
+            bytes[size++] = (byte) value;
+            return this;
+        }
+
+        Code u2(int value) {
+            return u1(value >> 8).u1(value);
+        }
+
+        Code u4(int value) {
+            return u2(value >> 16).u2(value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
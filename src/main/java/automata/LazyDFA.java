@@ -0,0 +1,256 @@
+package automata;
+
+import automata.exception.AlphabetException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A DFA that is built from an NFA on demand, while reading strings. <br>
+ * Converting an NFA to a DFA up front can create exponentially many subset
+ * states, most of which a given string never visits. Instead, this only
+ * creates the subset states (and transitions) that are actually reached,
+ * and caches them so that repeated paths run at DFA speed.
+ * <p>
+ * The cache is bounded by a memory budget. Once the budget would be exceeded,
+ * the whole cache is flushed and rebuilding continues from the current state;
+ * the result is still correct, just slower until the cache warms up again.
+ * A lazy DFA is not safe to use from several threads at once.
+ * @implNote Subset states are {@link BitSet}s of NFA state numbers, interned
+ * the same way as in {@link automata.operations.AutomataConvertor#NFAtoDFA
+ * the subset construction}, and stepped with the NFA's precomputed epsilon
+ * closures.
+ */
+public class LazyDFA {
+    /** The default size of the state cache, in bytes. */
+    public static final long DEFAULT_CACHE_BYTES = 1 << 20;
+    /** A transition that has not been computed yet. */
+    private static final int UNKNOWN = -1;
+    /** A rough estimate of the fixed cost of caching one state, in bytes. */
+    private static final int STATE_OVERHEAD = 96;
+
+    /** The NFA being determinized. */
+    private final CompiledNFA nfa;
+    /** The number of columns in the transition table. */
+    private final int stride;
+    /** The most memory the cache may use, in bytes. */
+    private final long cacheBytes;
+
+    /** The number of each cached subset. */
+    private final HashMap<BitSet, Integer> numbers = new HashMap<>();
+    /** The NFA states in each cached subset, indexed by subset number. */
+    private final List<int[]> members = new ArrayList<>();
+    /** Whether each cached subset is accepting, indexed by subset number. */
+    private boolean[] accepting = new boolean[16];
+    /** The cached transitions; see {@link CompiledDFA} for the layout. */
+    private int[] table;
+    /** The estimated memory used by the cache, in bytes. */
+    private long usedBytes;
+    /** The number of times the cache has been flushed. */
+    private int flushes;
+    /** The number of the start subset. May change when the cache is flushed. */
+    private int start;
+    /** The NFA states in the start subset. */
+    private final int[] startMembers;
+    /** Scratch space for computing the next subset. */
+    private final BitSet scratch;
+
+    /**
+     * Create a lazy DFA for an NFA.
+     * @param nfa the NFA to determinize.
+     * @param cacheBytes the most memory the cache of states may use. At least
+     *                   two states are always cached, however small this is.
+     */
+    LazyDFA(CompiledNFA nfa, long cacheBytes) {
+        this.nfa = nfa;
+        this.stride = nfa.columnCount();
+        this.cacheBytes = cacheBytes;
+        this.table = new int[16 * Math.max(1, stride)];
+        this.scratch = new BitSet(nfa.stateCount());
+
+        int s = nfa.startState();
+        startMembers = Arrays.copyOfRange(nfa.closures, nfa.closureStart[s], nfa.closureStart[s + 1]);
+        start = add(startMembers);
+    }
+
+    /**
+     * Determine if a string is accepted by the NFA this was built from.
+     * @param string the string to test.
+     * @return true iff the string is accepted; false otherwise.
+     * @see NFA#accepts(CharSequence)
+     */
+    public boolean accepts(CharSequence string) {
+        int state = startState();
+        for (int i = 0, n = string.length(); i < n; i++) {
+            char c = string.charAt(i);
+            int column = nfa.column(c);
+            if (column < 0) {
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
+                        string, c
+                );
+                throw new AlphabetException(msg);
+            }
+            state = step(state, column);
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Get the number of the start state.
+     * @return the start state's number.
+     */
+    public int startState() {
+        return start;
+    }
+
+    /**
+     * Perform a single transition, building the next state if it has not
+     * been cached yet.
+     * @param state the number of the current state.
+     * @param column the column of the symbol being read, as given by
+     *               {@link #column(char)}.
+     * @return the number of the next state. Since the cache may be flushed,
+     * state numbers from before this call should no longer be used.
+     */
+    public int step(int state, int column) {
+        int next = table[state * stride + column];
+        if (next != UNKNOWN) return next;
+
+        scratch.clear();
+        int[] moveStart = nfa.moveStart;
+        int[] closureStart = nfa.closureStart;
+        for (int q : members.get(state)) {
+            int cell = q * stride + column;
+            for (int m = moveStart[cell]; m < moveStart[cell + 1]; m++) {
+                int target = nfa.moves[m];
+                for (int i = closureStart[target]; i < closureStart[target + 1]; i++) {
+                    scratch.set(nfa.closures[i]);
+                }
+            }
+        }
+
+        Integer found = numbers.get(scratch);
+        if (found != null) {
+            next = found;
+        } else {
+            int[] nextMembers = scratch.stream().toArray();
+            if (usedBytes + cost(nextMembers.length) > cacheBytes && members.size() > 2) {
+                state = flush(state);
+            }
+            next = add(nextMembers);
+        }
+        table[state * stride + column] = next;
+        return next;
+    }
+
+    /**
+     * Determine the column of the transition table that a symbol reads from.
+     * @param symbol the symbol to look up.
+     * @return the column for this symbol, or -1 if it is not in the alphabet.
+     */
+    public int column(char symbol) {
+        return nfa.column(symbol);
+    }
+
+    /**
+     * Determine if a state is accepting.
+     * @param state the number of the state to check.
+     * @return true iff the state contains any accepting NFA state.
+     */
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * Determine if a state is dead: it contains no NFA states, so no string
+     * can ever be accepted from it.
+     * @param state the number of the state to check.
+     * @return true iff the state is the empty subset.
+     */
+    public boolean isDead(int state) {
+        return members.get(state).length == 0;
+    }
+
+    /**
+     * Get the number of states currently in the cache.
+     * @return the number of cached states.
+     */
+    public int cachedStates() {
+        return members.size();
+    }
+
+    /**
+     * Get the number of times the cache has been flushed because it ran out
+     * of memory. A high number suggests the budget is too small.
+     * @return the number of flushes so far.
+     */
+    public int cacheFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Estimate the memory needed to cache a state.
+     * @param size the number of NFA states in the subset.
+     * @return the estimated cost, in bytes.
+     */
+    private long cost(int size) {
+        return STATE_OVERHEAD + 4L * stride + 4L * size + nfa.stateCount() / 8;
+    }
+
+    /**
+     * Add a subset to the cache, with none of its transitions computed.
+     * @param subset the NFA states in the subset, in ascending order.
+     * @return the number of the new state.
+     */
+    private int add(int[] subset) {
+        int number = members.size();
+        BitSet key = new BitSet(nfa.stateCount());
+        boolean isAccepting = false;
+        for (int q : subset) {
+            key.set(q);
+            isAccepting |= nfa.isAccepting(q);
+        }
+        numbers.put(key, number);
+        members.add(subset);
+
+        if (number >= accepting.length) accepting = Arrays.copyOf(accepting, accepting.length * 2);
+        accepting[number] = isAccepting;
+        if ((number + 1) * stride > table.length) table = Arrays.copyOf(table, table.length * 2);
+        Arrays.fill(table, number * stride, (number + 1) * stride, UNKNOWN);
+
+        usedBytes += cost(subset.length);
+        return number;
+    }
+
+    /**
+     * Empty the cache, keeping only the start state and the current state.
+     * @param state the number of the current state.
+     * @return the new number of the current state.
+     */
+    private int flush(int state) {
+        int[] current = members.get(state);
+        flushes++;
+        numbers.clear();
+        members.clear();
+        usedBytes = 0;
+
+        start = add(startMembers);
+        Integer kept = numbers.get(keyOf(current));
+        return kept != null ? kept : add(current);
+    }
+
+    /**
+     * Convert a list of NFA states into a cache key.
+     * @param subset the NFA states.
+     * @return a set of the same states.
+     */
+    private BitSet keyOf(int[] subset) {
+        BitSet key = new BitSet(nfa.stateCount());
+        for (int q : subset) key.set(q);
+        return key;
+    }
+}
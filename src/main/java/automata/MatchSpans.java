@@ -0,0 +1,76 @@
+package automata;
+
+import java.util.Arrays;
+
+/**
+ * The matches found in a string by a {@link Searcher}, as (start, end) index
+ * pairs. Each match covers <c>string.substring(start(i), end(i))</c>. The
+ * matches do not overlap, and are in order from left to right.
+ * <p>
+ * The spans are stored end to end in a single <c>int[]</c>, with no boxing.
+ */
+public final class MatchSpans {
+    /** The start and end of every match, alternating. */
+    private int[] spans = new int[16];
+    /** The number of matches. */
+    private int size;
+
+    MatchSpans() {}
+
+    /**
+     * Record another match, after all the matches so far.
+     * @param start the index of the first symbol in the match.
+     * @param end the index after the last symbol in the match.
+     */
+    void add(int start, int end) {
+        if (2 * size == spans.length) spans = Arrays.copyOf(spans, spans.length * 2);
+        spans[2 * size] = start;
+        spans[2 * size + 1] = end;
+        size++;
+    }
+
+    /**
+     * Get the number of matches found.
+     * @return the number of matches.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get where a match starts.
+     * @param match the number of the match, counting from the left.
+     * @return the index of the first symbol in the match.
+     */
+    public int start(int match) {
+        return spans[2 * match];
+    }
+
+    /**
+     * Get where a match ends.
+     * @param match the number of the match, counting from the left.
+     * @return the index after the last symbol in the match.
+     */
+    public int end(int match) {
+        return spans[2 * match + 1];
+    }
+
+    /**
+     * Get every match as an array.
+     * @return a new array of the start and end of every match, alternating:
+     * <c>[start(0), end(0), start(1), end(1), ...]</c>.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(spans, 2 * size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('[').append(start(i)).append(", ").append(end(i)).append(')');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,43 @@
+package automata;
+
+/**
+ * An incremental, resumable match of an automaton against input that arrives
+ * in pieces. <br>
+ * A matcher only remembers where the automaton is after the input fed so far
+ * (a single state for a DFA, a set of states for an NFA), not the input
+ * itself, so feeding a string in pieces costs the same as reading it in one
+ * go, and many matchers can be kept alive at once.
+ * <p>
+ * Matchers are not safe to use from several threads at once; create one
+ * matcher per session instead.
+ */
+public interface Matcher {
+    /**
+     * Read the next piece of the input.
+     * @param input the symbols to read, in order.
+     * @throws automata.exception.AlphabetException if the input contains a
+     * symbol not in the automaton's alphabet. The symbols before it have
+     * still been read.
+     */
+    void feed(CharSequence input);
+
+    /**
+     * Determine if the input fed so far is accepted.
+     * @return true iff the automaton would accept everything fed since the
+     * last reset; false otherwise.
+     */
+    boolean isAccepting();
+
+    /**
+     * Determine if the input fed so far can never be accepted, no matter what
+     * is fed next. Once a matcher is dead, further input can be skipped.
+     * @return true iff no continuation of the input can be accepted. A false
+     * result does not guarantee that some continuation is accepted.
+     */
+    boolean isDead();
+
+    /**
+     * Forget all input fed so far, returning the matcher to the start state.
+     */
+    void reset();
+}
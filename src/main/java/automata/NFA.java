@@ -5,6 +5,11 @@ import automata.exception.AlphabetException;
 import automata.exception.InvalidAutomatonException;
 import automata.operations.AutomataConvertor;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -53,6 +58,8 @@ import java.util.stream.Collectors;
  */
 public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFunction, State startState,
                   Set<State> acceptingStates) {
+    /** The compiled form of every NFA, built on first use. */
+    private static final IdentityCache<NFA, CompiledNFA> COMPILED = new IdentityCache<>(CompiledNFA::new);
     public NFA(
             Set<State> states,
             Alphabet alphabet,
@@ -131,24 +138,104 @@ public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFun
      * @return True iff the NFA can end up in an accept state after parsing
      * every character in the string; false otherwise.
      */
-    public boolean accepts(String string) {
-        Set<State> currentStates = epsilonClosure(startState);
+    public boolean accepts(CharSequence string) {
+        return matcher().accepts(string);
+    }
 
-        for (Character c : string.toCharArray()) {
-            if (!alphabet.contains(c)) {
-                String msg = String.format("String '%s' contains symbol '%c' not in Automaton's alphabet.", string, c);
-                throw new AlphabetException(msg);
-            }
-            Set<State> immediateNextStates = new HashSet<>();
-            currentStates.stream()
-                    .map(state -> transitionFunction.transition(state, c))
-                    .filter(Objects::nonNull)
-                    .forEach(immediateNextStates::addAll);
+    /**
+     * Determine if the contents of a stream are within the regular language
+     * defined by this NFA. The stream is read in fixed-size chunks, so
+     * arbitrarily large inputs can be checked without holding them in memory.
+     * @param reader the stream to test. It is read to the end but not closed.
+     * @return True iff the NFA can end up in an accept state after parsing
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @see NFAMatcher#accepts(Reader)
+     */
+    public boolean accepts(Reader reader) throws IOException {
+        return matcher().accepts(reader);
+    }
 
-            currentStates = epsilonClosure(immediateNextStates);
-        }
-        return acceptingStates.stream().anyMatch(currentStates::contains);
+    /**
+     * Determine if the contents of a stream of bytes are within the regular
+     * language defined by this NFA.
+     * @param stream the stream to test. It is read to the end but not closed.
+     * @param charset the encoding used to decode the stream's bytes.
+     * @return True iff the NFA can end up in an accept state after parsing
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @see #accepts(Reader)
+     */
+    public boolean accepts(InputStream stream, Charset charset) throws IOException {
+        return accepts(new InputStreamReader(stream, charset));
+    }
+
+    /**
+     * Compile this NFA into flat transition and epsilon closure tables, which
+     * can be simulated without any hashing or allocation.
+     * @return a table-based equivalent of this NFA.
+     * @implNote The compiled NFA is built once per NFA object and cached, so
+     * every other method here can use it cheaply. Changing the transition
+     * function after the first call is not seen by the cached form.
+     * @see CompiledNFA
+     */
+    public CompiledNFA compile() {
+        return COMPILED.get(this);
+    }
+
+    /**
+     * Create a matcher that simulates this NFA, from its cached
+     * {@link #compile() compiled} form.
+     * @return a new, reusable matcher for this NFA.
+     */
+    public NFAMatcher matcher() {
+        return compile().matcher();
+    }
+
+    /**
+     * Create a DFA for this NFA that is built on demand while reading
+     * strings, using a cache of {@link LazyDFA#DEFAULT_CACHE_BYTES} bytes.
+     * Unlike {@link #toDFA()}, this never builds states that are not used,
+     * so it works even when the full DFA would be exponentially large.
+     * @return a new lazy DFA for this NFA.
+     */
+    public LazyDFA lazyDFA() {
+        return lazyDFA(LazyDFA.DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Create a DFA for this NFA that is built on demand while reading
+     * strings.
+     * @param cacheBytes the most memory the DFA's state cache may use. When
+     *                   it runs out, the cache is flushed and rebuilt.
+     * @return a new lazy DFA for this NFA.
+     * @see LazyDFA
+     */
+    public LazyDFA lazyDFA(long cacheBytes) {
+        return compile().lazyDFA(cacheBytes);
     }
+
+    /**
+     * Create a searcher that finds the matches of this NFA within larger
+     * strings.
+     * @return a new searcher for this NFA.
+     */
+    public Searcher searcher() {
+        return new Searcher(this);
+    }
+
+    /**
+     * Find every leftmost-longest, non-overlapping substring of a string that
+     * this NFA accepts. This generalizes
+     * {@link #acceptableSubstrings(String, int)} to every start position.
+     * @param string the string to search.
+     * @return the spans of every match, from left to right.
+     * @see Searcher#findAll(CharSequence, Searcher.MatchKind)
+     */
+    public MatchSpans findAll(CharSequence string) {
+        return searcher().findAll(string);
+    }
+
     /**
      * Determine the valid ending points for acceptable substrings of the
      * provided string, assuming parsing begins at the specified starting
@@ -177,10 +264,12 @@ public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFun
      */
     public List<Integer> acceptableSubstrings(String string, int start) {
         List<Integer> valid = new LinkedList<>();
-        Set<State> currentStates = epsilonClosure(startState);
+        CompiledNFA compiled = compile();
+        NFAMatcher matcher = compiled.matcher();
         for (int pos = start; pos < string.length(); pos++) {
-            Character symbol = string.charAt(pos);
-            if (!alphabet.contains(symbol)) {
+            char symbol = string.charAt(pos);
+            int column = compiled.column(symbol);
+            if (column < 0) {
                 String msg = String.format(
                         "String '%s' contains symbol '%c' not in Automaton's alphabet.",
                         string, symbol
@@ -188,15 +277,8 @@ public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFun
                 throw new AlphabetException(msg);
             }
 
-            Set<State> immediateNextStates = new HashSet<>();
-            currentStates.stream()
-                    .map(state -> transitionFunction.transition(state, symbol))
-                    .filter(Objects::nonNull)
-                    .forEach(immediateNextStates::addAll);
-
-            currentStates = epsilonClosure(immediateNextStates);
-
-            if (acceptingStates.stream().anyMatch(currentStates::contains)) {
+            matcher.step(column);
+            if (matcher.isAccepting()) {
                 valid.add(pos+1);
             }
         }
@@ -235,6 +317,18 @@ public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFun
         return output;
     }
 
+    /**
+     * Compute the Epsilon Closure of every state in this NFA at once. The
+     * closures are cached in the returned table, so that the closure of any
+     * set of states is a union of precomputed rows rather than a new search.
+     * Prefer this over {@link #epsilonClosure(Set)} when many closures are
+     * needed.
+     * @return a table of the epsilon closure of every state.
+     */
+    public EpsilonClosureTable epsilonClosureTable() {
+        return new EpsilonClosureTable(states, transitionFunction);
+    }
+
     /**
      * Create a clone of this NFA, with every single state renamed to
      * something else.
@@ -283,6 +377,7 @@ public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFun
     public NFA simplifyEpsilon() {
         HashMap<State, Set<State>> redundantEpsilons = new HashMap<>();
         Set<State> kept = new HashSet<>();
+        EpsilonClosureTable closures = epsilonClosureTable();
         for (State state : states) {
             // Starting and accepting states that are only epsilon transitions usually serve
             if (state.equals(startState) || acceptingStates.contains(state)) {
@@ -296,7 +391,7 @@ public record NFA(Set<State> states, Alphabet alphabet, Transition transitionFun
                 isRedundant = false;
                 break;
             }
-            Set<State> epsilonResult = epsilonClosure(state);
+            Set<State> epsilonResult = closures.toStates(closures.closureOf(closures.indexOf(state)));
             // Trap states, which would have no outputs (including epsilons), are ignored.
             if (!isRedundant || epsilonResult.isEmpty()) {
                 kept.add(state);
@@ -0,0 +1,202 @@
+package automata;
+
+import automata.exception.AlphabetException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reusable simulation of a {@link CompiledNFA}, in the style of Thompson's
+ * construction: rather than trying every path through the NFA, it tracks the
+ * set of every state the NFA could be in, one symbol at a time. This takes
+ * time linear in the length of the string, even for NFAs whose DFA
+ * equivalent would be far too large to build.
+ * <p>
+ * The current and next sets of states are kept in two preallocated
+ * {@link SparseSet}s that swap roles after every symbol, so the simulation
+ * does not allocate anything while reading a string. A matcher is not safe to
+ * use from several threads at once; create one matcher per thread instead.
+ */
+public class NFAMatcher implements Matcher {
+    /** The number of characters read from a stream at a time. */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * A set of state numbers that can be cleared in constant time and
+     * iterated in insertion order. A number i is in the set iff
+     * <c>dense[sparse[i]] == i</c> and <c>sparse[i] < size</c>; stale values
+     * left in either array are harmless, so nothing ever needs to be reset.
+     */
+    private static class SparseSet {
+        final int[] dense;
+        final int[] sparse;
+        int size;
+
+        SparseSet(int capacity) {
+            dense = new int[capacity];
+            sparse = new int[capacity];
+        }
+
+        boolean contains(int i) {
+            int at = sparse[i];
+            return at < size && dense[at] == i;
+        }
+
+        void add(int i) {
+            sparse[i] = size;
+            dense[size++] = i;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /** The NFA being simulated. */
+    private final CompiledNFA nfa;
+    /** The states the NFA is currently in. */
+    private SparseSet current;
+    /** Scratch space for the states the NFA will be in after the next step. */
+    private SparseSet next;
+
+    /**
+     * Create a matcher for an NFA, starting in the epsilon closure of the
+     * start state.
+     * @param nfa the NFA to simulate.
+     */
+    NFAMatcher(CompiledNFA nfa) {
+        this.nfa = nfa;
+        current = new SparseSet(nfa.stateCount());
+        next = new SparseSet(nfa.stateCount());
+        reset();
+    }
+
+    /**
+     * Determine if a string is accepted by the NFA. This resets the matcher
+     * before reading the string.
+     * @param string the string to test.
+     * @return true iff the NFA can end up in an accept state after reading
+     * every character in the string; false otherwise.
+     * @see NFA#accepts(CharSequence)
+     */
+    public boolean accepts(CharSequence string) {
+        reset();
+        feed(string);
+        return isAccepting();
+    }
+
+    /**
+     * Determine if the contents of a stream are accepted by the NFA. The
+     * stream is read in fixed-size chunks, so the input is never held in
+     * memory at once. This resets the matcher before reading the stream.
+     * @param reader the stream to test. It is read to the end but not closed.
+     * @return true iff the NFA can end up in an accept state after reading
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     */
+    public boolean accepts(Reader reader) throws IOException {
+        reset();
+        char[] chunk = new char[CHUNK_SIZE];
+        long offset = 0;
+        for (int read = reader.read(chunk); read != -1; read = reader.read(chunk)) {
+            for (int i = 0; i < read; i++) {
+                int column = nfa.column(chunk[i]);
+                if (column < 0) {
+                    String msg = String.format(
+                            "Input contains symbol '%c' at position %d not in Automaton's alphabet.",
+                            chunk[i], offset + i
+                    );
+                    throw new AlphabetException(msg);
+                }
+                step(column);
+            }
+            offset += read;
+        }
+        return isAccepting();
+    }
+
+    @Override
+    public void feed(CharSequence input) {
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            int column = nfa.column(c);
+            if (column < 0) {
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
+                        input, c
+                );
+                throw new AlphabetException(msg);
+            }
+            step(column);
+        }
+    }
+
+    /**
+     * Return the matcher to its initial configuration: the epsilon closure of
+     * the start state.
+     */
+    @Override
+    public void reset() {
+        current.clear();
+        addClosure(current, nfa.startState());
+    }
+
+    /**
+     * Read a single symbol, moving every current state along its transitions
+     * and then following epsilon transitions.
+     * @param column the column of the symbol, as given by
+     *               {@link CompiledNFA#column(char)}.
+     */
+    public void step(int column) {
+        int stride = nfa.columnCount();
+        int[] moveStart = nfa.moveStart;
+        int[] moves = nfa.moves;
+
+        next.clear();
+        for (int i = 0; i < current.size; i++) {
+            int cell = current.dense[i] * stride + column;
+            for (int m = moveStart[cell]; m < moveStart[cell + 1]; m++) {
+                addClosure(next, moves[m]);
+            }
+        }
+
+        SparseSet swap = current;
+        current = next;
+        next = swap;
+    }
+
+    /**
+     * Determine if the NFA is currently in an accepting state.
+     * @return true iff any of the current states is accepting.
+     */
+    @Override
+    public boolean isAccepting() {
+        for (int i = 0; i < current.size; i++) {
+            if (nfa.isAccepting(current.dense[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @implNote The NFA is considered dead once it is in no states at all.
+     */
+    @Override
+    public boolean isDead() {
+        return current.size == 0;
+    }
+
+    /**
+     * Add a state and everything in its epsilon closure to a set.
+     * @param set the set to add to.
+     * @param state the number of the state whose closure is added.
+     */
+    private void addClosure(SparseSet set, int state) {
+        if (set.contains(state)) return;
+        int[] closures = nfa.closures;
+        for (int i = nfa.closureStart[state]; i < nfa.closureStart[state + 1]; i++) {
+            int reached = closures[i];
+            if (!set.contains(reached)) set.add(reached);
+        }
+    }
+}
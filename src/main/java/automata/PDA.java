@@ -2,9 +2,14 @@ package automata;
 
 import automata.components.*;
 import automata.exception.AlphabetException;
+import automata.exception.StackDepthException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * A PushDown Automaton (PDA). Has comparable functionality to a {@link NFA},
@@ -35,9 +40,11 @@ import java.util.stream.Collectors;
  * symbol to the stack before continuing to the actual start of the PDA.
  * Additionally, since it is possible for the PDA to get stuck in a loop of
  * epsilon transitions that results in an infinite number of elements being
- * pushed to the stack, it is assumed that a maximum of |Q| epsilon transitions
- * may occur between reads from the tape head. This may be an underestimate in
- * some cases, particularly when a PDA is created from a CFG.
+ * pushed to the stack, epsilon transitions that would make the stack deeper
+ * than a fixed bound are ignored. By default, the bound is the number of
+ * states plus the length of the input, which is enough for any PDA where
+ * every stack symbol accounts for at least one input symbol, like those
+ * created from a CFG without epsilon rules.
  */
 public record PDA(Set<State> states,
                   Alphabet stringAlphabet,
@@ -45,31 +52,76 @@ public record PDA(Set<State> states,
                   StackTransition relation,
                   State startState,
                   Set<State> acceptingStates) {
+    /** The number of characters read from a stream at a time. */
+    private static final int CHUNK_SIZE = 8192;
 
     /**
      * An internal hashable representation of the "true state" of a PDA at
      * some time. Includes not only the current machine state, but the contents
      * of the stack.
      * @param state The current machine state.
-     * @param stack The contents of the stack.
+     * @param stack The contents of the stack. Configurations share the
+     *              unchanged parts of their stacks, so this is cheap to copy
+     *              and to hash.
      */
-    private record PDAConfiguration(State state, Stack<String> stack) {}
+    private record PDAConfiguration(State state, PersistentStack<String> stack) {}
+
+    /**
+     * A bound on the depth of the stack during one run, which remembers the
+     * shallowest stack it ever had to cut short.
+     */
+    private static final class StackBound {
+        /** The deepest the stack may grow. May be raised during the run. */
+        int maxDepth;
+        /** The depth of the shallowest configuration dropped, if any. */
+        int shallowestCut = Integer.MAX_VALUE;
+
+        StackBound(int maxDepth) {
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * Determine if a configuration is within the bound, noting when it
+         * is not.
+         * @param config the configuration to check.
+         * @return true iff its stack is no deeper than the bound.
+         */
+        boolean allows(PDAConfiguration config) {
+            int depth = config.stack.size();
+            if (depth <= maxDepth) return true;
+            shallowestCut = Math.min(shallowestCut, depth);
+            return false;
+        }
+
+        /**
+         * @return true iff a configuration was ever dropped.
+         */
+        boolean wasReached() {
+            return shallowestCut != Integer.MAX_VALUE;
+        }
+    }
 
     /**
      * The starting configuration, including the empty stack.
-     * @return a configuration including the start state and empty stack.
+     * @param bound the bound on the depth of the stack.
+     * @return the epsilon closure of the start state with an empty stack.
      */
-    private Set<PDAConfiguration> startConfig() {
-        return epsilonClosure(new PDAConfiguration(startState, new Stack<>()));
+    private Set<PDAConfiguration> startConfig(StackBound bound) {
+        return epsilonClosure(Set.of(new PDAConfiguration(startState, PersistentStack.empty())), bound);
     }
 
-    // Lazy method to clone and push/pop from the stack.
-    private Stack<String> nextStack(Stack<String> current, String symbol, boolean isEpsilon) {
-        @SuppressWarnings("unchecked")
-        Stack<String> next = (Stack<String>) current.clone();
-        if (!isEpsilon) next.pop();
-        if (!Objects.equals(symbol, "" + Alphabet.EPSILON)) {
-            next.push(symbol);
+    /**
+     * Determine the stack after a transition. The current stack is left
+     * untouched; the result shares everything below its top with it.
+     * @param current the stack before the transition.
+     * @param symbol the symbol the transition pushes. May be epsilon.
+     * @param isEpsilon true if the transition does not pop the top symbol.
+     * @return the stack after the transition.
+     */
+    private PersistentStack<String> nextStack(PersistentStack<String> current, String symbol, boolean isEpsilon) {
+        PersistentStack<String> next = isEpsilon ? current : current.pop();
+        if (!StackAlphabet.EPSILON.equals(symbol)) {
+            next = next.push(symbol);
         }
         return next;
     }
@@ -88,14 +140,14 @@ public record PDA(Set<State> states,
 
         for (StackState eResult : relation.epsilonStackTransition(config.state, symbol)) {
             //System.out.println(config.state + ", ε, " + symbol + " --> " + eResult);
-            Stack<String> futureStack = nextStack(config.stack, eResult.stackSymbol(), true);
+            PersistentStack<String> futureStack = nextStack(config.stack, eResult.stackSymbol(), true);
             step.add(new PDAConfiguration(eResult.state(), futureStack));
         }
         if (!config.stack.isEmpty()) {
             StackState input = new StackState(config.state, config.stack.peek());
             for (StackState result : relation.transition(input, symbol)) {
                 //System.out.println(input + ", " + symbol + " --> " + result);
-                Stack<String> futureStack = nextStack(config.stack, result.stackSymbol(), false);
+                PersistentStack<String> futureStack = nextStack(config.stack, result.stackSymbol(), false);
                 step.add(new PDAConfiguration(result.state(), futureStack));
             }
         }
@@ -103,40 +155,30 @@ public record PDA(Set<State> states,
     }
 
     /**
-     * Compute the Epsilon Closure of a configuration. This is an
+     * Compute the Epsilon Closure of a set of configurations. This is an
      * operation that determines the set of all reachable states and stack
-     * configurations from the input states via epsilon transitions alone.
-     * @param config A configuration to determine the epsilon closure of.
-     * @return The set of configs that can be reached via a reasonable number
-     * of epsilon transitions.
-     * @implNote "A reasonable number" of epsilon transitions is defined as the
-     * number of states in the PDA. This may not be a sufficient amount for
-     * some applications, such as a CFG-derived PDA.
+     * configurations from the input configurations via epsilon transitions
+     * alone.
+     * <p>
+     * Configurations are expanded from a worklist, and each one is only
+     * expanded the first time it is reached, so the closure stops as soon as
+     * nothing new can be reached.
+     * @param configs The configurations to determine the epsilon closure of.
+     * @param bound The bound on the depth of the stack. Epsilon transitions
+     *              that would push the stack any deeper are ignored, which
+     *              guarantees that the closure is finite.
+     * @return The set of configs that can be reached via epsilon transitions,
+     * including the input configurations.
      */
-    private Set<PDAConfiguration> epsilonClosure(PDAConfiguration config) {
-        Set<PDAConfiguration> out = new HashSet<>();
-        out.add(config);
-
-        Set<PDAConfiguration> step = new HashSet<>();
-        step.add(config);
-        Set<PDAConfiguration> nextStep = new HashSet<>();
-
-        // NOTE:
-        //  This is a very hacky solution to ensure that the PDA never gets
-        //  stuck in a loop while actually being able to do the epsilon
-        //  transitions it needs to. It will do as many epsilon transitions
-        //  as there are states in the machine. Arguably, this is also
-        //  insufficient, but you can increase the states factor if necessary.
-        for (int p = 0; p <= states().size(); p++) {
-            nextStep = step.stream()
-                    //.filter(out::contains)
-                    .map(x -> transitionStep(x, Alphabet.EPSILON))
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toSet());
-            out.addAll(step);
-            step = nextStep;
+    private Set<PDAConfiguration> epsilonClosure(Set<PDAConfiguration> configs, StackBound bound) {
+        Set<PDAConfiguration> out = new HashSet<>(configs);
+        Deque<PDAConfiguration> worklist = new ArrayDeque<>(configs);
+        while (!worklist.isEmpty()) {
+            PDAConfiguration config = worklist.pop();
+            for (PDAConfiguration next : transitionStep(config, Alphabet.EPSILON)) {
+                if (bound.allows(next) && out.add(next)) worklist.push(next);
+            }
         }
-        out.addAll(nextStep);
         return out;
     }
 
@@ -150,26 +192,161 @@ public record PDA(Set<State> states,
      * @return True iff the PDA can end up in an accept state after parsing
      * every character in the string; false otherwise.
      */
-    public boolean accepts(String string) {
-        Set<PDAConfiguration> currentConfigs = startConfig();
+    public boolean accepts(CharSequence string) {
+        return accepts(string, states.size() + string.length());
+    }
 
-        // currentConfigs.forEach(System.out::println);
+    /**
+     * Determine if a string is within the context-free language defined by
+     * this PDA, with an explicit bound on the depth of the stack.
+     * @param string the string to test with this PDA.
+     * @param maxStackDepth the deepest the stack may grow. Any set of steps
+     *                      that would need a deeper stack is not followed.
+     * @return True iff the PDA can end up in an accept state after parsing
+     * every character in the string; false otherwise.
+     */
+    public boolean accepts(CharSequence string, int maxStackDepth) {
+        StackBound bound = new StackBound(maxStackDepth);
+        Set<PDAConfiguration> currentConfigs = startConfig(bound);
 
-        for (Character symbol : string.toCharArray()) {
+        for (int i = 0; i < string.length() && !currentConfigs.isEmpty(); i++) {
+            char symbol = string.charAt(i);
             if (!stringAlphabet.contains(symbol)) {
                 String msg = String.format(
                         "String '%s' contains symbol '%c' not in Automaton's alphabet.",
                         string, symbol);
                 throw new AlphabetException(msg);
             }
-            currentConfigs = currentConfigs.stream()
-                    .map(c -> transitionStep(c, symbol))
-                    .flatMap(Set::stream)
-                    .map(this::epsilonClosure)
-                    .flatMap(Set::stream)
-                    .collect(Collectors.toSet());
+            currentConfigs = step(currentConfigs, symbol, bound);
         }
-        return currentConfigs.stream().anyMatch(x -> acceptingStates.contains(x.state));
+        return isAccepting(currentConfigs);
+    }
+
+    /**
+     * Determine if the contents of a stream are within the context-free
+     * language defined by this PDA. The stream is read in fixed-size chunks,
+     * and only the current set of configurations is carried from one chunk to
+     * the next, so the input is never held in memory at once.
+     * @param reader the stream to test. It is read until the result is
+     *               decided (usually to the end) but not closed.
+     * @return True iff the PDA can end up in an accept state after parsing
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @throws StackDepthException if the stream is rejected, but some set of
+     * steps was cut short that {@link #accepts(CharSequence)} would have
+     * followed.
+     * @implNote Since the length of the stream is not known in advance, the
+     * stack may grow as deep as the number of states plus the number of
+     * symbols read so far, which reaches the bound used by
+     * {@link #accepts(CharSequence)} at the end of the stream. When that
+     * smaller bound drops a configuration the full bound would have kept,
+     * only an acceptance is certain, and a rejection throws instead.
+     */
+    public boolean accepts(Reader reader) throws IOException {
+        return accepts(reader, new StackBound(states.size()), true);
+    }
+
+    /**
+     * Determine if the contents of a stream are within the context-free
+     * language defined by this PDA, with an explicit bound on the depth of
+     * the stack.
+     * @param reader the stream to test. It is read until the result is
+     *               decided (usually to the end) but not closed.
+     * @param maxStackDepth the deepest the stack may grow. Any set of steps
+     *                      that would need a deeper stack is not followed.
+     * @return True iff the PDA can end up in an accept state after parsing
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @throws StackDepthException if the stream is rejected, but the bound
+     * cut short some set of steps that {@link #accepts(CharSequence)} would
+     * have followed.
+     */
+    public boolean accepts(Reader reader, int maxStackDepth) throws IOException {
+        return accepts(reader, new StackBound(maxStackDepth), false);
+    }
+
+    /**
+     * Read a stream through this PDA.
+     * @param reader the stream to test.
+     * @param bound the bound on the depth of the stack.
+     * @param grow true if the bound is raised by one for each symbol read.
+     * @return True iff the PDA can end up in an accept state after parsing
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     */
+    private boolean accepts(Reader reader, StackBound bound, boolean grow) throws IOException {
+        Set<PDAConfiguration> currentConfigs = startConfig(bound);
+        char[] chunk = new char[CHUNK_SIZE];
+        long offset = 0;
+        for (int read = reader.read(chunk); read != -1; read = reader.read(chunk)) {
+            for (int i = 0; i < read; i++) {
+                // Nothing is left to follow, and nothing was cut short.
+                if (currentConfigs.isEmpty() && !bound.wasReached()) return false;
+                if (!stringAlphabet.contains(chunk[i])) {
+                    String msg = String.format(
+                            "Input contains symbol '%c' at position %d not in Automaton's alphabet.",
+                            chunk[i], offset + i);
+                    throw new AlphabetException(msg);
+                }
+                if (currentConfigs.isEmpty()) continue;
+                if (grow) bound.maxDepth++;
+                currentConfigs = step(currentConfigs, chunk[i], bound);
+            }
+            offset += read;
+        }
+        if (isAccepting(currentConfigs)) return true;
+
+        // A string of this length would have been given a deeper stack, and
+        // the steps that needed one might have accepted.
+        long fullDepth = states.size() + offset;
+        if (bound.shallowestCut <= fullDepth) {
+            String msg = String.format(
+                    "Input of length %d could not be decided within the stack depth allowed; pass a bound of at least %d.",
+                    offset, fullDepth);
+            throw new StackDepthException(msg);
+        }
+        return false;
+    }
+
+    /**
+     * Determine if the contents of a stream of bytes are within the
+     * context-free language defined by this PDA.
+     * @param stream the stream to test. It is read to the end but not closed.
+     * @param charset the encoding used to decode the stream's bytes.
+     * @return True iff the PDA can end up in an accept state after parsing
+     * the whole stream; false otherwise.
+     * @throws IOException if the stream cannot be read.
+     * @see #accepts(Reader)
+     */
+    public boolean accepts(InputStream stream, Charset charset) throws IOException {
+        return accepts(new InputStreamReader(stream, charset));
+    }
+
+    /**
+     * Read a single symbol from every configuration, then take the epsilon
+     * closure of the result.
+     * @param configs the current configurations.
+     * @param symbol the symbol read. Assumed to be in the string alphabet.
+     * @param bound the bound on the depth of the stack.
+     * @return every configuration the PDA could be in after reading the symbol.
+     */
+    private Set<PDAConfiguration> step(Set<PDAConfiguration> configs, Character symbol, StackBound bound) {
+        Set<PDAConfiguration> read = new HashSet<>();
+        for (PDAConfiguration config : configs) {
+            for (PDAConfiguration next : transitionStep(config, symbol)) {
+                if (bound.allows(next)) read.add(next);
+            }
+        }
+        return epsilonClosure(read, bound);
+    }
+
+    /**
+     * Determine if any configuration is in an accepting state.
+     * @param configs the current configurations.
+     * @return true iff any configuration's state is accepting.
+     */
+    private boolean isAccepting(Set<PDAConfiguration> configs) {
+        return configs.stream().anyMatch(x -> acceptingStates.contains(x.state));
     }
 
     @Override
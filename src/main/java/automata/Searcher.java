@@ -0,0 +1,295 @@
+package automata;
+
+import automata.exception.AlphabetException;
+import automata.operations.AutomataCombiner;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Finds every match of an {@link NFA} within a larger string, rather than
+ * checking the whole string at once. <br>
+ * The search takes two passes over the string, each with a {@link LazyDFA}:
+ * <ol>
+ *     <li>
+ *         A backward pass with the reverse of the NFA, unanchored so that it
+ *         can start anywhere (an implicit <c>.*</c> at the end). It reaches
+ *         an accepting state at exactly the positions where some match
+ *         starts, so one pass finds every start position.
+ *     </li>
+ *     <li>
+ *         A forward pass with the NFA itself from each chosen start, which
+ *         finds where that match ends.
+ *     </li>
+ * </ol>
+ * Matches are chosen leftmost first, and do not overlap: the search resumes
+ * where the previous match ended. An empty match is followed by a search from
+ * the next position.
+ * <p>
+ * Finding the starts takes one step per symbol. Finding an end reads the
+ * match, plus any further symbols until the NFA can no longer accept (for a
+ * longest match) or until it first accepts (for a shortest match).
+ * <p>
+ * The symbols read past the end of a longest match may be read again when
+ * looking for the next one, which alone would take quadratic time on inputs
+ * like <c>x|xx*y</c> over <c>xxx...</c>. To avoid this, the search remembers
+ * every (state, position) pair it reached after the last accepting state of a
+ * match: none of them can lead to another accepting state, so a later search
+ * that reaches one stops there. Each pair is then read past at most once, so
+ * the whole search takes time linear in the length of the string, as in
+ * Reps' maximal-munch tokenization. The pairs are kept as primitive longs,
+ * and those before the start of the current search, which can no longer be
+ * reached, are dropped as the set grows. If the forward cache is flushed, the
+ * state numbers change and the pairs are forgotten.
+ * <p>
+ * A searcher is not safe to use from several threads at once.
+ */
+public class Searcher {
+    /**
+     * How to choose the end of a match, once its start is known.
+     */
+    public enum MatchKind {
+        /** The longest match from the leftmost start, as in POSIX. */
+        LEFTMOST_LONGEST,
+        /** The shortest match from the leftmost start. */
+        LEFTMOST_SHORTEST,
+    }
+
+    /** The NFA, for finding where a match ends. */
+    private final LazyDFA forward;
+    /** The reversed, unanchored NFA, for finding where matches start. */
+    private final LazyDFA backward;
+
+    /**
+     * Create a searcher for an NFA.
+     * @param nfa the NFA whose matches are searched for.
+     */
+    Searcher(NFA nfa) {
+        forward = nfa.lazyDFA();
+        backward = AutomataCombiner.unanchored(AutomataCombiner.reverse(nfa)).lazyDFA();
+    }
+
+    /**
+     * Find every leftmost-longest match in a string.
+     * @param string the string to search.
+     * @return the spans of every match.
+     * @see #findAll(CharSequence, MatchKind)
+     */
+    public MatchSpans findAll(CharSequence string) {
+        return findAll(string, MatchKind.LEFTMOST_LONGEST);
+    }
+
+    /**
+     * Find every match in a string.
+     * @param string the string to search.
+     * @param kind how to choose the end of each match.
+     * @return the spans of every match, from left to right.
+     * @throws AlphabetException if the string contains a symbol not in the
+     * NFA's alphabet.
+     */
+    public MatchSpans findAll(CharSequence string, MatchKind kind) {
+        BitSet starts = matchStarts(string);
+        MatchSpans matches = new MatchSpans();
+        PairSet exhausted = new PairSet();
+        PairList pending = new PairList();
+        int n = string.length();
+        for (int start = starts.nextSetBit(0); start >= 0 && start <= n; start = starts.nextSetBit(start)) {
+            exhausted.forgetBefore(start);
+            int end = matchEnd(string, start, kind, exhausted, pending);
+            matches.add(start, end);
+            start = end > start ? end : start + 1;
+        }
+        return matches;
+    }
+
+    /**
+     * Find every position where a match starts, by reading the string
+     * backwards with the reversed NFA.
+     * @param string the string to search.
+     * @return the indices where some match starts. The length of the string
+     * is included if the NFA accepts the empty string.
+     */
+    private BitSet matchStarts(CharSequence string) {
+        int n = string.length();
+        BitSet starts = new BitSet(n + 1);
+        int state = backward.startState();
+        if (backward.isAccepting(state)) starts.set(n);
+        for (int i = n - 1; i >= 0; i--) {
+            char c = string.charAt(i);
+            int column = backward.column(c);
+            if (column < 0) {
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Automaton's alphabet.",
+                        string, c
+                );
+                throw new AlphabetException(msg);
+            }
+            state = backward.step(state, column);
+            if (backward.isAccepting(state)) starts.set(i);
+        }
+        return starts;
+    }
+
+    /**
+     * Find where a match ends, given where it starts.
+     * @param string the string being searched.
+     * @param start the index a match is known to start at.
+     * @param kind how to choose the end of the match.
+     * @param exhausted the (state, position) pairs, coded by {@link #pair},
+     *                  from which no accepting state can be reached. Pairs
+     *                  this search proves the same of are added to it.
+     * @param pending scratch space for the pairs reached since the last
+     *                accepting state.
+     * @return the index after the last symbol of the match.
+     */
+    private int matchEnd(CharSequence string, int start, MatchKind kind, PairSet exhausted, PairList pending) {
+        int flushes = forward.cacheFlushes();
+        pending.clear();
+        int state = forward.startState();
+        int end = forward.isAccepting(state) ? start : -1;
+        for (int i = start; i < string.length(); i++) {
+            if (end != -1 && kind == MatchKind.LEFTMOST_SHORTEST) break;
+            state = forward.step(state, forward.column(string.charAt(i)));
+            if (forward.cacheFlushes() != flushes) {
+                flushes = forward.cacheFlushes();
+                exhausted.clear();
+                pending.clear();
+            }
+            if (forward.isDead(state)) break;
+            if (forward.isAccepting(state)) {
+                end = i + 1;
+                pending.clear();
+                continue;
+            }
+            long pair = pair(state, i + 1);
+            if (exhausted.contains(pair)) break;
+            pending.add(pair);
+        }
+        // The search stopped without reaching another accepting state, so
+        // none could be reached from the pairs after the last one. A shortest
+        // match stops at its first accepting state instead.
+        if (kind == MatchKind.LEFTMOST_LONGEST) {
+            for (int k = 0; k < pending.size; k++) exhausted.add(pending.pairs[k]);
+        }
+        return end;
+    }
+
+    /**
+     * Code a state of the forward DFA at a position in the string.
+     * @param state the number of the state.
+     * @param position the number of symbols read.
+     * @return the pair as a long.
+     */
+    private static long pair(int state, int position) {
+        return ((long) state << 32) | position;
+    }
+
+    /**
+     * A list of pairs, cleared by forgetting its size so that its storage is
+     * reused from one search to the next.
+     */
+    private static class PairList {
+        /** The pairs, in the order they were added. */
+        long[] pairs = new long[16];
+        /** The number of pairs. */
+        int size;
+
+        void add(long pair) {
+            if (size == pairs.length) pairs = Arrays.copyOf(pairs, size * 2);
+            pairs[size++] = pair;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * An open-addressing hash set of pairs. Pairs at positions before the
+     * current search can never be reached again, so they are dropped
+     * whenever the table is rebuilt.
+     */
+    private static class PairSet {
+        /** The pairs, by slot. */
+        private long[] table = new long[16];
+        /** Whether each slot of the table is in use. */
+        private boolean[] used = new boolean[16];
+        /** The number of pairs. */
+        private int size;
+        /** The position before which pairs may be dropped. */
+        private int floor;
+
+        /**
+         * @param pair a pair.
+         * @return true iff the pair is in the set.
+         */
+        boolean contains(long pair) {
+            int mask = table.length - 1;
+            for (int slot = hash(pair) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (table[slot] == pair) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Add a pair, if it is not already present.
+         * @param pair the pair to add.
+         */
+        void add(long pair) {
+            int mask = table.length - 1;
+            int slot = hash(pair) & mask;
+            while (used[slot]) {
+                if (table[slot] == pair) return;
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            table[slot] = pair;
+            if (2 * ++size > table.length) rehash();
+        }
+
+        /**
+         * Allow pairs at positions before a given one to be dropped.
+         * @param position the position of the next search's start.
+         */
+        void forgetBefore(int position) {
+            floor = position;
+        }
+
+        void clear() {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+
+        /**
+         * Rebuild the table without the pairs before the floor, at a size
+         * with room for the rest to double.
+         */
+        private void rehash() {
+            long[] oldTable = table;
+            boolean[] oldUsed = used;
+            int live = 0;
+            for (int slot = 0; slot < oldTable.length; slot++) {
+                if (oldUsed[slot] && (int) oldTable[slot] >= floor) live++;
+            }
+            int capacity = 16;
+            while (capacity < 4 * live) capacity *= 2;
+
+            table = new long[capacity];
+            used = new boolean[capacity];
+            size = live;
+            int mask = capacity - 1;
+            for (int old = 0; old < oldTable.length; old++) {
+                if (!oldUsed[old] || (int) oldTable[old] < floor) continue;
+                int slot = hash(oldTable[old]) & mask;
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                table[slot] = oldTable[old];
+            }
+        }
+
+        private static int hash(long pair) {
+            long h = pair * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
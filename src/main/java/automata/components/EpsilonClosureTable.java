@@ -0,0 +1,197 @@
+package automata.components;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The epsilon closure of every state in an NFA, computed once and cached. <br>
+ * The states are numbered from 0 to n-1, and each state's closure is stored as
+ * a {@link BitSet} row over those numbers. The closure of any set of states is
+ * then just the union (bitwise OR) of the rows of its members, rather than a
+ * new search through the epsilon transitions.
+ * <p>
+ * The rows are computed over the strongly connected components of the epsilon
+ * transitions: every state in a cycle of epsilon transitions has the same
+ * closure, so each component is closed once and its members share one row.
+ * Components are closed in reverse topological order, so the row of a
+ * component is its members plus the rows of the components it leads to.
+ */
+public class EpsilonClosureTable {
+    /** The states, indexed by their numbers. */
+    private final State[] states;
+    /** The number of each state. */
+    private final HashMap<State, Integer> numbers;
+    /** The closure of each state. States in the same component share a row. */
+    private final BitSet[] closures;
+
+    /**
+     * Compute the epsilon closure of every state.
+     * @param states The states to number. Should be every state the
+     *               transition function is defined for.
+     * @param tf The transition function whose epsilon transitions are used.
+     */
+    public EpsilonClosureTable(Collection<State> states, Transition tf) {
+        this.states = states.toArray(new State[0]);
+        int n = this.states.length;
+        numbers = new HashMap<>();
+        for (int i = 0; i < n; i++) numbers.put(this.states[i], i);
+
+        int[][] epsilons = new int[n][];
+        for (int i = 0; i < n; i++) {
+            Set<State> targets = tf.transition(this.states[i], Alphabet.EPSILON);
+            epsilons[i] = targets == null
+                    ? new int[0]
+                    : targets.stream().mapToInt(numbers::get).toArray();
+        }
+
+        closures = new BitSet[n];
+        closeComponents(epsilons);
+    }
+
+    /**
+     * Find the strongly connected components of the epsilon transitions with
+     * (an iterative version of) Tarjan's algorithm, closing each component as
+     * soon as it is found. Tarjan's algorithm finds a component only after
+     * every component reachable from it, so their rows are already complete.
+     * @param epsilons the epsilon transitions of each state.
+     */
+    private void closeComponents(int[][] epsilons) {
+        int n = states.length;
+        int[] order = new int[n];
+        int[] low = new int[n];
+        int[] nextEdge = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] calls = new int[n];
+        int visited = 0;
+        int stackSize = 0;
+        Arrays.fill(order, -1);
+
+        for (int root = 0; root < n; root++) {
+            if (order[root] != -1) continue;
+            int depth = 0;
+            calls[depth++] = root;
+            order[root] = low[root] = visited++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+                int v = calls[depth - 1];
+                if (nextEdge[v] < epsilons[v].length) {
+                    int w = epsilons[v][nextEdge[v]++];
+                    if (order[w] == -1) {
+                        order[w] = low[w] = visited++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        calls[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], order[w]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    int parent = calls[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] != order[v]) continue;
+
+                // v is the root of a component: pop its members and close it.
+                BitSet row = new BitSet();
+                int bottom = stackSize;
+                do {
+                    int member = stack[--bottom];
+                    onStack[member] = false;
+                    row.set(member);
+                    closures[member] = row;
+                } while (stack[bottom] != v);
+
+                for (int i = bottom; i < stackSize; i++) {
+                    for (int w : epsilons[stack[i]]) {
+                        if (closures[w] != row) row.or(closures[w]);
+                    }
+                }
+                stackSize = bottom;
+            }
+        }
+    }
+
+    /**
+     * Get the number of states in this table.
+     * @return the number of states; state numbers are below this value.
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Determine the number of a state.
+     * @param state the state to look up.
+     * @return the number of the state, or -1 if it is not in this table.
+     */
+    public int indexOf(State state) {
+        return numbers.getOrDefault(state, -1);
+    }
+
+    /**
+     * Get the state that a number refers to.
+     * @param state the number of the state.
+     * @return the state with that number.
+     */
+    public State state(int state) {
+        return states[state];
+    }
+
+    /**
+     * Get the cached epsilon closure of a single state.
+     * @param state the number of the state.
+     * @return the numbers of every state reachable via epsilon transitions,
+     * including the state itself. This row is shared and must not be
+     * modified; copy it first if necessary.
+     */
+    public BitSet closureOf(int state) {
+        return closures[state];
+    }
+
+    /**
+     * Add the epsilon closure of a single state to a set of states.
+     * @param state the number of the state whose closure is added.
+     * @param into the set of state numbers to add the closure to.
+     */
+    public void addClosure(int state, BitSet into) {
+        into.or(closures[state]);
+    }
+
+    /**
+     * Compute the epsilon closure of a set of states, by combining the cached
+     * closures of its members.
+     * @param states the numbers of the states to find the closure of.
+     * @return a new set of the numbers of every state reachable via epsilon
+     * transitions from any of the input states.
+     */
+    public BitSet closure(BitSet states) {
+        BitSet out = new BitSet(this.states.length);
+        for (int i = states.nextSetBit(0); i >= 0; i = states.nextSetBit(i + 1)) {
+            out.or(closures[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Convert a set of state numbers back into the states themselves.
+     * @param states the numbers of the states.
+     * @return a new set containing the numbered states.
+     */
+    public Set<State> toStates(BitSet states) {
+        Set<State> out = new HashSet<>();
+        for (int i = states.nextSetBit(0); i >= 0; i = states.nextSetBit(i + 1)) {
+            out.add(this.states[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,140 @@
+package automata.components;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A cache of values derived from objects, keyed by object identity. <br>
+ * Automata are records, so they cannot hold a field for their compiled form,
+ * and their structural equality would hash every state and transition on
+ * each lookup. Instead, this keeps each derived value alongside a weak
+ * reference to the object it came from: a lookup only hashes the object's
+ * identity, and the entry is dropped once the object is garbage collected.
+ * <p>
+ * Values must not refer back to their key, or the key will never be
+ * collected. The cache is safe to use from several threads. Finding a cached
+ * value takes no lock and allocates nothing: each thread reuses its own
+ * lookup key. A value may be computed more than once if two threads ask for
+ * it at the same time, but only one is kept.
+ * @param <K> the type of the objects values are derived from.
+ * @param <V> the type of the derived values.
+ */
+public final class IdentityCache<K, V> {
+    /** A key that is equal to any other key for the same object. */
+    private interface IdentityKey {
+        /**
+         * @return the object this key is for, or null if it is gone.
+         */
+        Object referent();
+
+        /**
+         * Compare two keys by the identity of their objects.
+         * @param key a key.
+         * @param o the object to compare it to.
+         * @return true iff o is the same key, or a key for the same object.
+         */
+        static boolean equal(IdentityKey key, Object o) {
+            if (key == o) return true;
+            if (!(o instanceof IdentityKey other)) return false;
+            Object referent = key.referent();
+            return referent != null && referent == other.referent();
+        }
+    }
+
+    /** A key stored in the cache, which does not keep its object alive. */
+    private static final class Key extends WeakReference<Object> implements IdentityKey {
+        /** The identity hash code of the referent, kept once it is collected. */
+        private final int hash;
+
+        Key(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return IdentityKey.equal(this, o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** A key used only to look an object up, reused by its thread. */
+    private static final class Lookup implements IdentityKey {
+        /** The object being looked up, or null between lookups. */
+        private Object referent;
+        /** The identity hash code of the object being looked up. */
+        private int hash;
+
+        @Override
+        public Object referent() {
+            return referent;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return IdentityKey.equal(this, o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** The cached values. */
+    private final ConcurrentHashMap<IdentityKey, V> values = new ConcurrentHashMap<>();
+    /** The keys whose objects have been collected. */
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    /** Each thread's lookup key. */
+    private final ThreadLocal<Lookup> lookups = ThreadLocal.withInitial(Lookup::new);
+    /** Derives the value for an object. */
+    private final Function<K, V> derive;
+
+    /**
+     * Create an empty cache.
+     * @param derive the function that derives the value for an object. It is
+     *               called at most once per object, unless two threads race.
+     */
+    public IdentityCache(Function<K, V> derive) {
+        this.derive = derive;
+    }
+
+    /**
+     * Get the value derived from an object, deriving it if it is not cached.
+     * @param key the object to look up.
+     * @return the value derived from that exact object.
+     */
+    public V get(K key) {
+        expunge();
+        Lookup lookup = lookups.get();
+        lookup.referent = key;
+        lookup.hash = System.identityHashCode(key);
+        V value = values.get(lookup);
+        // Don't keep the object alive through this thread's lookup key.
+        lookup.referent = null;
+        if (value != null) return value;
+
+        value = derive.apply(key);
+        V raced = values.putIfAbsent(new Key(key, collected), value);
+        return raced != null ? raced : value;
+    }
+
+    /**
+     * Remove the entries of every collected object. Polling the queue takes
+     * no lock while it is empty.
+     */
+    private void expunge() {
+        for (Object key; (key = collected.poll()) != null; ) values.remove(key);
+    }
+}
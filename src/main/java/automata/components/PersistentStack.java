@@ -0,0 +1,150 @@
+package automata.components;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An immutable stack, stored as a linked list of nodes from the top down. <br>
+ * Pushing and popping create a new stack and leave the old one untouched,
+ * but share every node below the top, so both take constant time and memory.
+ * This makes it cheap for the many configurations of a {@link automata.PDA}
+ * to branch off the same stack.
+ * <p>
+ * Each node caches the size and hash code of the stack it is the top of, so
+ * hashing a stack takes constant time, and two stacks of different sizes or
+ * hashes are unequal without comparing their contents.
+ * @param <T> the type of the elements on the stack.
+ */
+public final class PersistentStack<T> implements Iterable<T> {
+    /** The empty stack. Every empty stack is this one. */
+    private static final PersistentStack<?> EMPTY = new PersistentStack<>(null, null, 0, 1);
+
+    /** The element on top of the stack. */
+    private final T top;
+    /** The stack below the top element; null for the empty stack. */
+    private final PersistentStack<T> rest;
+    /** The number of elements on the stack. */
+    private final int size;
+    /** The hash code of the stack, built up from the hash of the rest. */
+    private final int hash;
+
+    private PersistentStack(T top, PersistentStack<T> rest, int size, int hash) {
+        this.top = top;
+        this.rest = rest;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    /**
+     * Get the empty stack.
+     * @param <T> the type of elements the stack will hold.
+     * @return a stack with no elements.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentStack<T> empty() {
+        return (PersistentStack<T>) EMPTY;
+    }
+
+    /**
+     * Create a stack with one more element on top of this one.
+     * @param element the element to push.
+     * @return a new stack with the element on top of this stack's elements.
+     */
+    public PersistentStack<T> push(T element) {
+        return new PersistentStack<>(element, this, size + 1, 31 * hash + Objects.hashCode(element));
+    }
+
+    /**
+     * Get the stack without its top element.
+     * @return the stack below the top element.
+     * @throws NoSuchElementException if the stack is empty.
+     */
+    public PersistentStack<T> pop() {
+        if (isEmpty()) throw new NoSuchElementException("Cannot pop from an empty stack.");
+        return rest;
+    }
+
+    /**
+     * Get the top element of the stack.
+     * @return the element on top of the stack.
+     * @throws NoSuchElementException if the stack is empty.
+     */
+    public T peek() {
+        if (isEmpty()) throw new NoSuchElementException("Cannot peek at an empty stack.");
+        return top;
+    }
+
+    /**
+     * Determine if the stack has no elements.
+     * @return true iff the stack is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of elements on the stack.
+     * @return the depth of the stack.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterate over the elements of the stack, from the top down.
+     * @return an iterator starting at the top element.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private PersistentStack<T> at = PersistentStack.this;
+
+            @Override
+            public boolean hasNext() {
+                return !at.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                T element = at.peek();
+                at = at.rest;
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PersistentStack<?> other)) return false;
+        if (size != other.size || hash != other.hash) return false;
+        PersistentStack<?> mine = this;
+        // Stop as soon as both share the same node; everything below is shared.
+        while (mine != other) {
+            if (!Objects.equals(mine.top, other.top)) return false;
+            mine = mine.rest;
+            other = other.rest;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Display the stack in the same order as {@link java.util.Stack}, from
+     * the bottom up.
+     * @return the elements of the stack, bottom first.
+     */
+    @Override
+    public String toString() {
+        Object[] elements = new Object[size];
+        int i = size;
+        for (T element : this) elements[--i] = element;
+        return Arrays.toString(elements);
+    }
+}
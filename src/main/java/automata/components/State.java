@@ -8,7 +8,10 @@ import java.util.Objects;
 public class State implements Comparable<State> {
     /** A counter to create unique states as needed by the user or program. */
     private static int STATE_COUNTER = 0;
-    /** The name of this state. Defaults to qXX, where X is a number. */
+    /**
+     * The name of this state. Defaults to qXX, where X is a number. May be
+     * null for subclasses that compute their name on demand.
+     */
     private final String name;
 
     /**
@@ -53,11 +56,11 @@ public class State implements Comparable<State> {
 
     @Override
     public String toString() {
-        return name;
+        return getName();
     }
 
     @Override
     public int compareTo(State other) {
-        return this.name.compareTo(other.name);
+        return this.getName().compareTo(other.getName());
     }
 }
@@ -0,0 +1,59 @@
+package automata.components;
+
+import java.util.BitSet;
+
+/**
+ * A DFA state that stands for a set of NFA states, as created by the subset
+ * (powerset) construction. <br>
+ * The members are kept as a {@link BitSet} over a numbering of the NFA's
+ * states, which is what identifies the state. Its name, the sorted list of
+ * member states like <c>{q1, q4, q7}</c>, is only built the first time it is
+ * asked for, since most subset states are never printed.
+ */
+public class SubsetState extends State {
+    /** The NFA's states, indexed by the numbering the members use. */
+    private final State[] nfaStates;
+    /** The numbers of the NFA states this state stands for. */
+    private final BitSet members;
+    /** The name of this state, once it has been built. */
+    private String name;
+
+    /**
+     * Create a state standing for a set of NFA states.
+     * @param nfaStates The NFA's states, indexed by their numbers. Shared
+     *                  between all subset states of the same construction.
+     * @param members The numbers of the NFA states in this subset. Must not be
+     *                modified afterward.
+     */
+    public SubsetState(State[] nfaStates, BitSet members) {
+        super(null);
+        this.nfaStates = nfaStates;
+        this.members = members;
+    }
+
+    @Override
+    public String getName() {
+        if (name == null) {
+            StringBuilder sb = new StringBuilder("{");
+            members.stream().mapToObj(i -> nfaStates[i]).sorted()
+                    .forEach(state -> sb.append(state).append(", "));
+            if (sb.length() > 1) sb.setLength(sb.length() - 2);
+            sb.append("}");
+            name = sb.toString();
+        }
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SubsetState other = (SubsetState) o;
+        return nfaStates == other.nfaStates && members.equals(other.members);
+    }
+
+    @Override
+    public int hashCode() {
+        return members.hashCode();
+    }
+}
@@ -0,0 +1,152 @@
+package automata.components;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.function.BiFunction;
+
+/**
+ * A partition of an {@link Alphabet} into equivalence classes. Two symbols
+ * are in the same class if, for every state in an automaton, reading either
+ * symbol leads to the same next state(s). <br>
+ * Since an automaton cannot tell the symbols in a class apart, a transition table
+ * only needs one column per class rather than one per symbol. For large
+ * alphabets like {@link Alphabet#ALL_LETTERS}, where most letters are
+ * treated the same way, this shrinks the table considerably.
+ * <p>
+ * Symbols are mapped to their class through a lookup table covering every
+ * possible <c>char</c>, so finding the class of a symbol is a single array
+ * read.
+ */
+public class SymbolClasses {
+    /** The number of distinct <c>char</c> values. */
+    private static final int CHAR_COUNT = Character.MAX_VALUE + 1;
+
+    /** Maps every char to its class number plus one, or 0 if not in the alphabet. */
+    private final char[] classOf;
+    /** One symbol from each class, indexed by class number. */
+    private final char[] representatives;
+
+    private SymbolClasses(char[] classOf, char[] representatives) {
+        this.classOf = classOf;
+        this.representatives = representatives;
+    }
+
+    /**
+     * Partition an alphabet into the classes of symbols that a transition
+     * function cannot distinguish.
+     * @param alphabet The alphabet to partition.
+     * @param states The states to consider. Should be every state the
+     *               transition function is defined for.
+     * @param tf The transition function that defines symbol equivalence.
+     * @return the equivalence classes of the alphabet's symbols.
+     * @see #partition(Alphabet, Collection, BiFunction)
+     */
+    public static SymbolClasses partition(Alphabet alphabet,
+                                          Collection<State> states,
+                                          DeterministicTransition tf) {
+        return partition(alphabet, states, tf::transition);
+    }
+
+    /**
+     * Partition an alphabet into the classes of symbols that a
+     * nondeterministic transition function cannot distinguish. Two symbols
+     * share a class iff every state sends them to the same set of states.
+     * @param alphabet The alphabet to partition.
+     * @param states The states to consider. Should be every state the
+     *               transition function is defined for.
+     * @param tf The transition function that defines symbol equivalence.
+     * @return the equivalence classes of the alphabet's symbols.
+     * @see #partition(Alphabet, Collection, BiFunction)
+     */
+    public static SymbolClasses partition(Alphabet alphabet,
+                                          Collection<State> states,
+                                          Transition tf) {
+        return partition(alphabet, states, tf::transition);
+    }
+
+    /**
+     * Partition an alphabet into the classes of symbols that lead to the same
+     * place from every state.
+     * <p>
+     * All symbols start in one class. Each state then splits every class
+     * according to where the state sends its symbols, so after all states
+     * have been considered, two symbols share a class iff every state sends
+     * them to the same place.
+     * @param alphabet The alphabet to partition.
+     * @param states The states to consider.
+     * @param targetOf Determines where a state goes on a symbol. Targets are
+     *                 compared with equals.
+     * @return the equivalence classes of the alphabet's symbols.
+     */
+    private static SymbolClasses partition(Alphabet alphabet,
+                                           Collection<State> states,
+                                           BiFunction<State, Character, ?> targetOf) {
+        char[] symbols = new char[alphabet.size()];
+        int count = 0;
+        for (Character symbol : alphabet) symbols[count++] = symbol;
+
+        int[] classes = new int[symbols.length];
+        int classCount = symbols.length == 0 ? 0 : 1;
+
+        HashMap<Object, Integer> targets = new HashMap<>();
+        HashMap<Long, Integer> refined = new HashMap<>();
+        for (State state : states) {
+            // Stop early: every symbol is already on its own.
+            if (classCount == symbols.length) break;
+            refined.clear();
+            for (int i = 0; i < symbols.length; i++) {
+                Object next = targetOf.apply(state, symbols[i]);
+                long target = targets.computeIfAbsent(next, k -> targets.size());
+                long key = ((long) classes[i] << 32) | target;
+                classes[i] = refined.computeIfAbsent(key, k -> refined.size());
+            }
+            classCount = refined.size();
+        }
+
+        char[] classOf = new char[CHAR_COUNT];
+        char[] representatives = new char[classCount];
+        for (int i = 0; i < symbols.length; i++) {
+            classOf[symbols[i]] = (char) (classes[i] + 1);
+            representatives[classes[i]] = symbols[i];
+        }
+        return new SymbolClasses(classOf, representatives);
+    }
+
+    /**
+     * Determine the class a symbol belongs to.
+     * @param symbol The symbol to look up.
+     * @return the class number of the symbol, or -1 if the symbol is not in
+     * the partitioned alphabet.
+     */
+    public int classOf(char symbol) {
+        return classOf[symbol] - 1;
+    }
+
+    /**
+     * Get a copy of the lookup table from symbols to classes, for code that
+     * needs to index it directly.
+     * @return a new array, indexed by <c>char</c>, holding the class number
+     * of each symbol plus one, or 0 for symbols not in the alphabet.
+     */
+    public char[] lookupTable() {
+        return classOf.clone();
+    }
+
+    /**
+     * Get the number of classes in this partition.
+     * @return the number of classes; class numbers are below this value.
+     */
+    public int classCount() {
+        return representatives.length;
+    }
+
+    /**
+     * Get a symbol that belongs to a class. Since every symbol in a class
+     * behaves the same way, any one of them can stand in for the class.
+     * @param symbolClass the class number.
+     * @return one of the symbols in the class.
+     */
+    public char representative(int symbolClass) {
+        return representatives[symbolClass];
+    }
+}
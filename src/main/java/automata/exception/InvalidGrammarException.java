@@ -0,0 +1,12 @@
+package automata.exception;
+
+/**
+ * General exception for when a CFG is used in a way its rules do not allow.
+ * Usually indicates that a parser which needs its grammar in a particular
+ * form, such as Chomsky Normal Form, was given a grammar that is not.
+ */
+public class InvalidGrammarException extends RuntimeException {
+    public InvalidGrammarException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,13 @@
+package automata.exception;
+
+/**
+ * Exception thrown when a PDA cannot decide whether to accept its input
+ * within the bound it was given on the depth of its stack. Usually indicates
+ * that a stream was longer than the default bound allows for; a larger
+ * bound may decide it.
+ */
+public class StackDepthException extends RuntimeException {
+    public StackDepthException(String message) {
+        super(message);
+    }
+}
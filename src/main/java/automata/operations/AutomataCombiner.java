@@ -7,7 +7,9 @@ import automata.exception.AlphabetException;
 import automata.exception.InvalidAutomatonException;
 import automata.exception.InvalidStateException;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -155,6 +157,67 @@ public class AutomataCombiner {
         return new NFA(states, alphabet, tf, start, accepting);
     }
 
+    /**
+     * Construct an automaton that accepts the reverse of every string in the
+     * language defined by an NFA. <br>
+     * Mechanically, every transition is turned around, the old start state
+     * becomes the only accepting state, and a new start state has epsilon
+     * transitions to every old accepting state.
+     * @param nfa the NFA whose language is reversed.
+     * @return a NFA that accepts a string iff the input NFA accepts the same
+     * string backwards.
+     */
+    public static NFA reverse(NFA nfa) {
+        Set<State> states = new HashSet<>(nfa.states());
+        Alphabet alphabet = nfa.alphabet();
+        Transition tf = new Transition();
+        State start = new State();
+        Set<State> accepting = Set.of(nfa.startState());
+
+        states.add(start);
+        tf.initializeFor(states, alphabet);
+
+        for (State from : nfa.states()) {
+            Map<Character, Set<State>> rules = nfa.transitionFunction().getOrDefault(from, new HashMap<>());
+            for (Map.Entry<Character, Set<State>> rule : rules.entrySet()) {
+                if (rule.getValue() == null) continue;
+                for (State to : rule.getValue()) {
+                    Set<State> reversed = new HashSet<>(tf.transition(to, rule.getKey()));
+                    reversed.add(from);
+                    tf.setState(to, rule.getKey(), reversed);
+                }
+            }
+        }
+        tf.setState(start, Alphabet.EPSILON, new HashSet<>(nfa.acceptingStates()));
+
+        return new NFA(states, alphabet, tf, start, accepting);
+    }
+
+    /**
+     * Construct an automaton that accepts any string that ends with a string
+     * in the language defined by an NFA; that is, the language Σ*L. <br>
+     * Mechanically, a new start state loops on every symbol and has an
+     * epsilon transition to the old start state, so the NFA can begin
+     * matching at any point in the string.
+     * @param nfa the NFA to allow any prefix for.
+     * @return a NFA that accepts any string with a suffix accepted by the
+     * input NFA.
+     */
+    public static NFA unanchored(NFA nfa) {
+        Set<State> states = new HashSet<>(nfa.states());
+        Alphabet alphabet = nfa.alphabet();
+        Transition tf = new Transition();
+        State start = new State();
+
+        states.add(start);
+        tf.initializeFor(states, alphabet);
+        nfa.transitionFunction().addAllTo(tf);
+        for (Character symbol : alphabet) tf.setState(start, symbol, start);
+        tf.setState(start, Alphabet.EPSILON, nfa.startState());
+
+        return new NFA(states, alphabet, tf, start, nfa.acceptingStates());
+    }
+
     /**
      * Construct an automaton that can raise a language to a specified power.
      * This operation involves concatenating the language <c>power</c> times,
@@ -4,13 +4,12 @@ import automata.DFA;
 import automata.NFA;
 import automata.components.Alphabet;
 import automata.components.DeterministicTransition;
+import automata.components.EpsilonClosureTable;
 import automata.components.State;
+import automata.components.SubsetState;
 import automata.components.Transition;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.util.*;
 
 public class AutomataConvertor {
     /**
@@ -54,108 +53,97 @@ public class AutomataConvertor {
      * equivalent.
      * This is done by determining the set of states reachable by some number
      * of transitions.
+     * <p>
+     * Each subset of NFA states is a {@link BitSet} over a numbering of the
+     * NFA's states, and is interned so that every distinct subset is given a
+     * DFA state number and queued exactly once. The DFA states themselves are
+     * {@link SubsetState}s, which only build their names if printed.
      * @param nfa the Nondeterministic Automaton to convert.
      * @return a Deterministic equivalent of the provided NFA. Any string
      * accepted by the NFA will be accepted by this DFA.
      */
     public static DFA NFAtoDFA(NFA nfa) {
-        Set<State> dfaStates = new HashSet<>();
         Alphabet alphabet = nfa.alphabet();
-        DeterministicTransition dt = new DeterministicTransition();
-        State startState;
-        Set<State> acceptingStates = new HashSet<>();
-
-        Set<State> nfaStartClosure = nfa.epsilonClosure(nfa.startState());
-        startState = subsetState(nfaStartClosure);
-        if (wouldBeAccepted(nfa, nfaStartClosure)) {
-            acceptingStates.add(startState);
+        Transition tf = nfa.transitionFunction();
+
+        EpsilonClosureTable closures = nfa.epsilonClosureTable();
+        State[] nfaStates = new State[closures.size()];
+        for (int i = 0; i < nfaStates.length; i++) nfaStates[i] = closures.state(i);
+
+        char[] symbols = new char[alphabet.size()];
+        int symbolCount = 0;
+        for (Character symbol : alphabet) symbols[symbolCount++] = symbol;
+
+        // The states each symbol moves every NFA state to.
+        int[][][] moves = new int[nfaStates.length][symbols.length][];
+        for (int q = 0; q < nfaStates.length; q++) {
+            for (int i = 0; i < symbols.length; i++) {
+                Set<State> targets = tf.transition(nfaStates[q], symbols[i]);
+                moves[q][i] = targets == null
+                        ? new int[0]
+                        : targets.stream().mapToInt(closures::indexOf).toArray();
+            }
         }
-
-        Queue<Set<State>> statesToParse = new LinkedList<>();
-        statesToParse.add(nfaStartClosure);
-
-        while (!statesToParse.isEmpty()) {
-            Set<State> subset = statesToParse.poll();
-            State subsetState = subsetState(subset);
-
-            if (dfaStates.contains(subsetState)) continue;
-            dfaStates.add(subsetState);
-
-            if (wouldBeAccepted(nfa, subset)) {
-                acceptingStates.add(subsetState);
+        BitSet nfaAccepting = new BitSet(nfaStates.length);
+        for (State state : nfa.acceptingStates()) nfaAccepting.set(closures.indexOf(state));
+
+        // Every distinct subset, numbered in the order it was discovered.
+        HashMap<BitSet, Integer> subsetNumbers = new HashMap<>();
+        List<BitSet> subsets = new ArrayList<>();
+        int[] dfaTransitions = new int[16 * Math.max(1, symbols.length)];
+
+        BitSet startSubset = closures.closureOf(closures.indexOf(nfa.startState()));
+        subsetNumbers.put(startSubset, 0);
+        subsets.add(startSubset);
+
+        // The worklist is just the subsets not yet expanded, in order.
+        // Outcomes are built in one scratch set, and only copied when new;
+        // the copy is trimmed to its highest member, so small subsets of a
+        // large NFA stay small.
+        BitSet outcomes = new BitSet();
+        for (int current = 0; current < subsets.size(); current++) {
+            BitSet subset = subsets.get(current);
+            for (int i = 0; i < symbols.length; i++) {
+                outcomes.clear();
+                for (int q = subset.nextSetBit(0); q >= 0; q = subset.nextSetBit(q + 1)) {
+                    for (int target : moves[q][i]) closures.addClosure(target, outcomes);
+                }
+
+                Integer next = subsetNumbers.get(outcomes);
+                if (next == null) {
+                    BitSet added = (BitSet) outcomes.clone();
+                    next = subsets.size();
+                    subsetNumbers.put(added, next);
+                    subsets.add(added);
+                }
+
+                int slot = current * symbols.length + i;
+                if (slot >= dfaTransitions.length) {
+                    dfaTransitions = Arrays.copyOf(dfaTransitions, dfaTransitions.length * 2);
+                }
+                dfaTransitions[slot] = next;
             }
-            for (Character symbol : alphabet) {
-                Set<State> outcomes = findAllOutcomes(nfa, subset, symbol);
-                State outcomeSubsetState = subsetState(outcomes);
-                statesToParse.add(outcomes);
-
-                dt.setState(subsetState, symbol, outcomeSubsetState);
+        }
 
-                if (wouldBeAccepted(nfa, outcomes)) acceptingStates.add(outcomeSubsetState);
+        State[] dfaStates = new State[subsets.size()];
+        Set<State> acceptingStates = new HashSet<>();
+        for (int d = 0; d < dfaStates.length; d++) {
+            dfaStates[d] = new SubsetState(nfaStates, subsets.get(d));
+            if (subsets.get(d).intersects(nfaAccepting)) acceptingStates.add(dfaStates[d]);
+        }
+        DeterministicTransition dt = new DeterministicTransition();
+        for (int d = 0; d < dfaStates.length; d++) {
+            for (int i = 0; i < symbols.length; i++) {
+                dt.setState(dfaStates[d], symbols[i], dfaStates[dfaTransitions[d * symbols.length + i]]);
             }
         }
 
         return new DFA(
-                dfaStates,
+                new HashSet<>(Arrays.asList(dfaStates)),
                 alphabet,
                 dt,
-                startState,
+                dfaStates[0],
                 acceptingStates
         );
     }
-
-    /**
-     * Determine the name of a state that, effectively, encodes a subset of
-     * NFA states. This name is equivalent to the list of states considered
-     * listed in alphabetical order.
-     * @param states the NFA states to consider.
-     * @return a single state, with a name based on the other states.
-     */
-    private static State subsetState(Set<State> states) {
-        StringBuilder sb = new StringBuilder("{");
-        states.stream().sorted().forEach(state -> sb.append(state).append(", "));
-        if (sb.lastIndexOf(",") != -1) {
-            sb.replace(sb.lastIndexOf(","), sb.length(), "");
-        }
-        sb.append("}");
-        return new State(sb.toString());
-    }
-
-    /**
-     * Given a set of input states, determine all possible output states
-     * reachable by transitioning across the given NFA with the given symbol.
-     * @param nfa the NFA whose outcomes should be considered.
-     * @param states the input states. Assumed to be a subset of the NFA's
-     *               states.
-     * @param symbol the input symbol. Assumed to be part of the NFA's
-     *               alphabet.
-     * @return all states reachable by taking (symbol) transitions from the
-     * input states.
-     */
-    private static Set<State> findAllOutcomes(
-            NFA nfa,
-            Set<State> states,
-            Character symbol
-    ) {
-        Set<State> reachable = new HashSet<>();
-        states.stream()
-                .map(state -> nfa.transitionFunction().transition(state, symbol))
-                .map(nfa::epsilonClosure)
-                .forEach(reachable::addAll);
-
-        return reachable;
-    }
-
-    /**
-     * Determine if any of this set of states would be accepted by the given
-     * NFA. If this subset-state would be accepted on an NFA, then the subset-
-     * state on a DFA would be accepted as well.
-     * @param nfa the NFA whose outcomes should be considered.
-     * @param states the input states. Assumed to be a subset of the NFA's
-     *               states.
-     * @return whether any of the states would be accepted.
-     */
-    private static boolean wouldBeAccepted(NFA nfa, Set<State> states) {
-        return nfa.acceptingStates().stream().anyMatch(states::contains);
-    }
 }
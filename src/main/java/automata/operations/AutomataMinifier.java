@@ -0,0 +1,186 @@
+package automata.operations;
+
+import automata.CompiledDFA;
+import automata.DFA;
+import automata.components.Alphabet;
+import automata.components.DeterministicTransition;
+import automata.components.State;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Umbrella class for reducing finite automata to their smallest equivalent
+ * form.
+ */
+public class AutomataMinifier {
+    /**
+     * Minimize a DFA using Hopcroft's partition refinement algorithm. <br>
+     * The reachable states are split into blocks that are known to be
+     * distinguishable, starting from "accepting" and "not accepting". A block
+     * is then used as a splitter: any other block whose states disagree on
+     * whether some symbol leads into the splitter must be split in two. Once
+     * no splitter can split anything, every block is a set of
+     * indistinguishable states, and becomes a single state in the result.
+     * <p>
+     * Only the smaller half of each split needs to be used as a splitter
+     * later, which keeps the total work at O(n·|Σ|·log n), where |Σ| is the
+     * number of {@link automata.components.SymbolClasses symbol classes}.
+     * @param dfa the DFA to minimize.
+     * @return the minimal DFA that accepts the same language. Each state is
+     * one of the original states, standing in for its whole block; the start
+     * state is kept as-is.
+     */
+    public static DFA hopcroft(DFA dfa) {
+        CompiledDFA compiled = dfa.compile();
+        int columns = compiled.columnCount();
+
+        // Number the reachable states 0..n-1, in BFS order.
+        int[] original = new int[compiled.stateCount()];
+        int[] number = new int[compiled.stateCount()];
+        Arrays.fill(number, -1);
+        int n = 0;
+        original[n] = compiled.startState();
+        number[compiled.startState()] = n++;
+        for (int head = 0; head < n; head++) {
+            for (int c = 0; c < columns; c++) {
+                int next = compiled.transition(original[head], c);
+                if (number[next] != -1) continue;
+                original[n] = next;
+                number[next] = n++;
+            }
+        }
+
+        // Inverse transitions, grouped by (column, target) so that the
+        // predecessors of t under c are preds[predStart[c*n+t] .. predStart[c*n+t+1]).
+        int[] predStart = new int[columns * n + 1];
+        int[] preds = new int[columns * n];
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < columns; c++) {
+                predStart[c * n + number[compiled.transition(original[s], c)] + 1]++;
+            }
+        }
+        for (int i = 1; i < predStart.length; i++) predStart[i] += predStart[i - 1];
+        int[] fill = predStart.clone();
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < columns; c++) {
+                preds[fill[c * n + number[compiled.transition(original[s], c)]]++] = s;
+            }
+        }
+
+        // The partition: block b holds elements[first[b] .. end[b]), and
+        // marked[b] of those (at the front) have been marked for splitting.
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] marked = new int[n];
+        int blocks = 0;
+
+        int accepting = 0;
+        for (int s = 0; s < n; s++) {
+            if (compiled.isAccepting(original[s])) elements[accepting++] = s;
+        }
+        int rejecting = accepting;
+        for (int s = 0; s < n; s++) {
+            if (!compiled.isAccepting(original[s])) elements[rejecting++] = s;
+        }
+        if (accepting > 0) {
+            first[blocks] = 0;
+            end[blocks++] = accepting;
+        }
+        if (accepting < n) {
+            first[blocks] = accepting;
+            end[blocks++] = n;
+        }
+        for (int b = 0; b < blocks; b++) {
+            for (int i = first[b]; i < end[b]; i++) {
+                location[elements[i]] = i;
+                blockOf[elements[i]] = b;
+            }
+        }
+
+        int[] worklist = new int[n];
+        int pending = 0;
+        if (blocks == 2) {
+            worklist[pending++] = (end[0] - first[0] <= end[1] - first[1]) ? 0 : 1;
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (pending > 0) {
+            int a = worklist[--pending];
+            // Take a copy, since splitting by one column may split this block.
+            int splitterSize = end[a] - first[a];
+            System.arraycopy(elements, first[a], splitter, 0, splitterSize);
+
+            for (int c = 0; c < columns; c++) {
+                int touchedCount = 0;
+                for (int i = 0; i < splitterSize; i++) {
+                    int target = c * n + splitter[i];
+                    for (int j = predStart[target]; j < predStart[target + 1]; j++) {
+                        int p = preds[j];
+                        int b = blockOf[p];
+                        if (marked[b] == 0) touched[touchedCount++] = b;
+
+                        // Swap p to the end of the marked prefix of its block.
+                        int swapWith = first[b] + marked[b]++;
+                        int other = elements[swapWith];
+                        elements[location[p]] = other;
+                        location[other] = location[p];
+                        elements[swapWith] = p;
+                        location[p] = swapWith;
+                    }
+                }
+
+                for (int t = 0; t < touchedCount; t++) {
+                    int b = touched[t];
+                    int split = first[b] + marked[b];
+                    marked[b] = 0;
+                    if (split == end[b]) continue;
+
+                    // The smaller side becomes the new block, so it is the
+                    // only side that needs to be relabelled and re-queued.
+                    int nb = blocks++;
+                    if (split - first[b] <= end[b] - split) {
+                        first[nb] = first[b];
+                        end[nb] = split;
+                        first[b] = split;
+                    } else {
+                        first[nb] = split;
+                        end[nb] = end[b];
+                        end[b] = split;
+                    }
+                    for (int i = first[nb]; i < end[nb]; i++) blockOf[elements[i]] = nb;
+                    worklist[pending++] = nb;
+                }
+            }
+        }
+
+        // Build the quotient automaton, one state per block.
+        State[] representative = new State[blocks];
+        representative[blockOf[0]] = dfa.startState();
+        for (int b = 0; b < blocks; b++) {
+            if (representative[b] == null) representative[b] = compiled.state(original[elements[first[b]]]);
+        }
+
+        Alphabet alphabet = dfa.alphabet();
+        Set<State> states = new HashSet<>();
+        Set<State> acceptingStates = new HashSet<>();
+        DeterministicTransition tf = new DeterministicTransition();
+        for (int b = 0; b < blocks; b++) {
+            State state = representative[b];
+            int s = original[elements[first[b]]];
+            states.add(state);
+            if (compiled.isAccepting(s)) acceptingStates.add(state);
+            for (Character symbol : alphabet) {
+                int next = number[compiled.transition(s, compiled.column(symbol))];
+                tf.setState(state, symbol, representative[blockOf[next]]);
+            }
+        }
+
+        return new DFA(states, alphabet, tf, dfa.startState(), acceptingStates);
+    }
+}
@@ -2,15 +2,21 @@ package grammar;
 
 import automata.PDA;
 import automata.components.Alphabet;
+import automata.components.IdentityCache;
 import automata.components.StackAlphabet;
 import automata.components.StackTransition;
 import automata.components.State;
 import grammar.components.CFString;
+import grammar.components.CompiledGrammar;
 import grammar.components.Grammar;
+import grammar.components.GrammarAnalysis;
 import grammar.components.Symbol;
 import grammar.components.Variable;
+import grammar.operations.GrammarConvertor;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -31,67 +37,156 @@ public record CFG(Set<Variable> variables,
                   Set<Symbol> alphabet,
                   Grammar grammar,
                   Variable start) {
-    private class CFStringIterator implements Iterator<String> {
-        final int limit;
-        int found = 0;
-        PriorityQueue<CFString> toParse = new PriorityQueue<>();
-        Set<CFString> seen = new HashSet<>();
-
-        String nextStr;
-
-        public CFStringIterator(int limit) {
-            this.limit = limit;
-            CFString str = new CFString(start);
-            toParse.add(str);
-            nextStr = computeNextStr();
-        }
+    /** The compiled form of every CFG, built on first use. */
+    private static final IdentityCache<CFG, CompiledGrammar> COMPILED = new IdentityCache<>(
+            cfg -> new CompiledGrammar(cfg.variables, cfg.alphabet, cfg.grammar, cfg.start));
+    /** The Earley parser of every CFG, built on first use. */
+    private static final IdentityCache<CFG, EarleyParser> PARSERS = new IdentityCache<>(
+            cfg -> new EarleyParser(cfg.compile()));
 
-        @Override
-        public boolean hasNext() {
-            return nextStr != null && found < limit;
-        }
+    /**
+     * Provide a stream of strings created by this language, shortest first,
+     * and in alphabetical order among strings of the same length. For an
+     * unbiased sample of a fixed length, use {@link #sampler()}.
+     * @param limit The maximum number of strings to create. Will terminate
+     *              early if no more strings can be generated.
+     * @return A stream of distinct strings in this language.
+     * @see StringEnumerator
+     */
+    public Stream<String> sampleStrings(int limit) {
+        return sampleStrings(limit, Integer.MAX_VALUE);
+    }
 
-        @Override
-        public String next() {
-            String out = nextStr;
-            nextStr = computeNextStr();
-            found++;
-            return out;
-        }
+    /**
+     * Provide a stream of strings created by this language, no longer than a
+     * given length, shortest first, and in alphabetical order among strings
+     * of the same length.
+     * @param limit The maximum number of strings to create. Will terminate
+     *              early if no more strings can be generated.
+     * @param maxLength The length of the longest strings to create.
+     * @return A stream of distinct strings in this language.
+     * @see StringEnumerator
+     */
+    public Stream<String> sampleStrings(int limit, int maxLength) {
+        Spliterator<String> sitr = new StringEnumerator(this, maxLength);
 
-        public String computeNextStr() {
-            while (!toParse.isEmpty()) {
-                CFString cf = toParse.poll();
-                assert cf != null;
-                if (seen.contains(cf)) continue;
-                seen.add(cf);
-                if (cf.isComplete()) return cf.toString();
+        return StreamSupport.stream(sitr, false).limit(limit);
+    }
 
-                Set<CFString> out = grammar.applyRule(cf);
+    /**
+     * Create strings of this language in parallel, no longer than a given
+     * length. The search is split among the pool's threads, which steal
+     * unsearched prefixes from each other; this is the fastest way to build
+     * a large corpus, but which strings are found first is not predictable.
+     * @param limit The maximum number of strings to create. Will terminate
+     *              early if no more strings can be generated.
+     * @param maxLength The length of the longest strings to create.
+     * @param pool The pool to search in.
+     * @return A concurrent set of distinct strings in this language.
+     * @see StringEnumerator#trySplit()
+     */
+    public Set<String> sampleStrings(int limit, int maxLength, ForkJoinPool pool) {
+        Set<String> out = ConcurrentHashMap.newKeySet();
+        Spliterator<String> sitr = new StringEnumerator(this, maxLength);
+        pool.submit(() -> StreamSupport.stream(sitr, true).unordered().limit(limit).forEach(out::add)).join();
+        return out;
+    }
 
+    /**
+     * Create a sampler that counts the strings of a given length in this
+     * language, and draws them uniformly at random.
+     * @return a new sampler for this grammar.
+     * @see StringSampler
+     */
+    public StringSampler sampler() {
+        return new StringSampler(this);
+    }
 
-                toParse.addAll(out);
-            }
-            return null;
+    /**
+     * Flatten this grammar into integer arrays for parsing and analysis.
+     * @return a compiled snapshot of this grammar.
+     * @implNote The compiled grammar is built once per CFG object and
+     * cached. Adding rules to the grammar after the first call is not seen
+     * by the cached form.
+     * @see CompiledGrammar
+     */
+    public CompiledGrammar compile() {
+        return COMPILED.get(this);
+    }
+
+    /**
+     * Run the standard analyses of this grammar: nullable, generating and
+     * reachable variables, and FIRST and FOLLOW sets.
+     * @return the analyses of a compiled snapshot of this grammar.
+     * @see GrammarAnalysis
+     */
+    public GrammarAnalysis analyze() {
+        return new GrammarAnalysis(compile());
+    }
+
+    /**
+     * Remove every useless variable and rule from this grammar: those that
+     * cannot appear in the derivation of any string of terminals, either
+     * because they can never finish producing terminals, or because they
+     * cannot be reached from the start.
+     * @return an equivalent CFG with only useful variables and rules, and the
+     * same start. If the language is empty, the start has no rules.
+     */
+    public CFG clean() {
+        CompiledGrammar compiled = compile();
+        GrammarAnalysis analysis = new GrammarAnalysis(compiled);
+
+        Grammar cleaned = new Grammar();
+        Set<Variable> used = new HashSet<>(Set.of(start));
+        for (Map.Entry<Variable, Set<CFString>> rule : grammar.entrySet()) {
+            if (!analysis.isUseful(compiled.indexOf(rule.getKey()))) continue;
+            Set<CFString> outputs = rule.getValue().stream()
+                    .filter(output -> output.stream().allMatch(e ->
+                            !(e instanceof Variable v) || analysis.isUseful(compiled.indexOf(v))))
+                    .collect(Collectors.toSet());
+            cleaned.put(rule.getKey(), outputs);
+            used.add(rule.getKey());
         }
+        return new CFG(used, alphabet, cleaned, start);
     }
 
     /**
-     * Provide a stream of strings created by this language. These
-     * @param limit The maximum number of strings to create. Will terminate
-     *              early if no more strings can be generated.
-     * @return A string outputting
+     * Determine if a string is in the language of this grammar, with an
+     * {@link EarleyParser}. Unlike {@link #convertToPDA()}, this works for
+     * every grammar in polynomial time.
+     * @param string the string to test.
+     * @return true iff the start variable can derive the string.
      */
-    public Stream<String> sampleStrings(int limit) {
-        Iterator<String> itr = new CFStringIterator(limit);
-        Spliterator<String> sitr = Spliterators.spliteratorUnknownSize(itr, 0);
+    public boolean accepts(CharSequence string) {
+        return PARSERS.get(this).accepts(string);
+    }
+
+    /**
+     * Build a deterministic parser for this grammar, if it is LL(1). For
+     * such grammars, this decides membership in one linear pass, rather than
+     * the search that {@link #convertToPDA()} or {@link #accepts} perform.
+     * @return a new parser for this grammar.
+     * @throws automata.exception.InvalidGrammarException if the grammar is
+     * not LL(1).
+     * @see LL1Parser#conflicts(CompiledGrammar)
+     */
+    public LL1Parser ll1Parser() {
+        return new LL1Parser(compile());
+    }
 
-        return StreamSupport.stream(sitr, false);
+    /**
+     * Convert this grammar to Chomsky Normal Form.
+     * @return an equivalent CFG whose rules are all <c>A -> BC</c> or
+     * <c>A -> a</c>, and possibly <c>S -> ε</c> for the start variable.
+     * @see GrammarConvertor#toCNF(CFG)
+     */
+    public CFG toCNF() {
+        return GrammarConvertor.toCNF(this);
     }
 
     public PDA convertToPDA() {
         Alphabet tapeAlphabet = Alphabet.withSymbols(
-                alphabet.stream().map(x -> x.toString().charAt(0)).collect(Collectors.toSet()));
+                alphabet.stream().map(Symbol::symbol).collect(Collectors.toSet()));
 
         StackAlphabet stackAlphabet = StackAlphabet.withSymbols(
                 variables.stream().map(Variable::toString).collect(Collectors.toSet()));
@@ -112,9 +207,11 @@ public record CFG(Set<Variable> variables,
         st.setState(begin, StackAlphabet.EPSILON, Alphabet.EPSILON, extra, StackAlphabet.CONTROL);
         st.setState(extra, StackAlphabet.EPSILON, Alphabet.EPSILON, loop, start.toString());
 
-        // Looping in-place replacements.
-        for (Variable input : grammar().keySet()) {
-            for (CFString output : grammar.get(input)) {
+        // Looping in-place replacements. Useless rules could only ever grow
+        // the stack without being matched, so they are left out.
+        Grammar rules = clean().grammar();
+        for (Variable input : rules.keySet()) {
+            for (CFString output : rules.get(input)) {
                 extra = loop;
                 State s;
                 for (int i = output.size()-1; i >= 0; i--) {
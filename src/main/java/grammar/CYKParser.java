@@ -0,0 +1,189 @@
+package grammar;
+
+import automata.exception.AlphabetException;
+import automata.exception.InvalidGrammarException;
+import grammar.components.CompiledGrammar;
+
+import java.util.Arrays;
+
+/**
+ * Decides membership in the language of a CFG in Chomsky Normal Form with
+ * the Cocke–Younger–Kasami algorithm. <br>
+ * For every substring of the input, from the shortest up, the parser finds
+ * the set of variables that can derive it: a single symbol is derived by the
+ * variables with a rule <c>A -> a</c>, and a longer substring by each
+ * <c>A -> BC</c> where, for some split, B derives the left part and C the
+ * right part. The string is accepted iff the start variable derives the
+ * whole string. This takes O(n³·|R|) time, but with no per-string setup, which
+ * makes it a good fit for testing many short strings.
+ * <p>
+ * Each set of variables is a bitset of longs, so the sets of the left and
+ * right parts are combined with bitwise ANDs and ORs rather than by checking
+ * every rule. A parser reuses its table between strings, so it is not safe
+ * to use from several threads at once.
+ * @see grammar.operations.GrammarConvertor#toCNF(CFG)
+ */
+public class CYKParser {
+    /** The grammar being parsed. */
+    private final CompiledGrammar grammar;
+    /** The number of longs in each set of variables. */
+    private final int words;
+    /** The number of the start variable. */
+    private final int start;
+    /** Whether the grammar produces the empty string. */
+    private final boolean acceptsEmpty;
+    /** The variables that produce each terminal, indexed by char, or null if none do. */
+    private final long[][] producers;
+    /** The variables C that appear in some rule A -> BC, for each variable B. */
+    private final long[] rightsOf;
+    /** For each pair B, C, the number of its set of heads A, or -1 if no rule A -> BC exists. */
+    private final int[] pairIndex;
+    /** The sets of heads A of rules A -> BC, end to end. */
+    private final long[] heads;
+    /** The table of derivable variables, reused between strings. */
+    private long[] table = new long[0];
+
+    /**
+     * Create a parser for a grammar in Chomsky Normal Form.
+     * @param grammar the grammar to parse with.
+     * @throws InvalidGrammarException if the grammar is not in Chomsky Normal
+     * Form.
+     */
+    public CYKParser(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        int variables = grammar.variableCount();
+        this.words = Math.max(1, (variables + 63) >>> 6);
+        this.start = grammar.startVariable();
+
+        boolean empty = false;
+        char[] terminals = grammar.terminals();
+        producers = new long[terminals.length == 0 ? 0 : terminals[terminals.length - 1] + 1][];
+        rightsOf = new long[variables * words];
+        pairIndex = new int[variables * variables];
+        Arrays.fill(pairIndex, -1);
+        int pairs = 0;
+        long[] pairHeads = new long[16 * words];
+
+        for (int r = 0; r < grammar.ruleCount(); r++) {
+            int a = grammar.lhs(r);
+            int length = grammar.length(r);
+            if (length == 0 && a == start) {
+                empty = true;
+            } else if (length == 1 && !CompiledGrammar.isVariable(grammar.element(r, 0))) {
+                int c = grammar.element(r, 0);
+                if (producers[c] == null) producers[c] = new long[words];
+                set(producers[c], 0, a);
+            } else if (length == 2
+                    && CompiledGrammar.isVariable(grammar.element(r, 0))
+                    && CompiledGrammar.isVariable(grammar.element(r, 1))
+                    && ~grammar.element(r, 0) != start
+                    && ~grammar.element(r, 1) != start) {
+                int b = ~grammar.element(r, 0);
+                int c = ~grammar.element(r, 1);
+                set(rightsOf, b * words, c);
+                int pair = b * variables + c;
+                if (pairIndex[pair] < 0) {
+                    if ((pairs + 1) * words > pairHeads.length) pairHeads = Arrays.copyOf(pairHeads, pairHeads.length * 2);
+                    pairIndex[pair] = pairs++;
+                }
+                set(pairHeads, pairIndex[pair] * words, a);
+            } else {
+                String msg = String.format(
+                        "Rule %d of variable %s is not in Chomsky Normal Form.",
+                        r - grammar.firstRule(a), grammar.variable(a)
+                );
+                throw new InvalidGrammarException(msg);
+            }
+        }
+        this.acceptsEmpty = empty;
+        this.heads = Arrays.copyOf(pairHeads, pairs * words);
+    }
+
+    /**
+     * Determine if a string is in the language of the grammar.
+     * @param string the string to parse.
+     * @return true iff the start variable can derive the string.
+     * @throws AlphabetException if the string contains a symbol that is not
+     * a terminal of the grammar.
+     */
+    public boolean accepts(CharSequence string) {
+        int n = string.length();
+        if (n == 0) return acceptsEmpty;
+
+        // Cell (i, length) holds the variables deriving string[i, i + length).
+        int cells = n * n * words;
+        if (table.length < cells) table = new long[cells];
+        else Arrays.fill(table, 0, cells, 0);
+
+        for (int i = 0; i < n; i++) {
+            char c = string.charAt(i);
+            if (!grammar.isTerminal(c)) {
+                String msg = String.format(
+                        "String '%s' contains symbol '%c' not in Grammar's alphabet.",
+                        string, c
+                );
+                throw new AlphabetException(msg);
+            }
+            if (c < producers.length && producers[c] != null) {
+                System.arraycopy(producers[c], 0, table, cell(n, i, 1), words);
+            }
+        }
+
+        int variables = grammar.variableCount();
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length <= n; i++) {
+                int out = cell(n, i, length);
+                for (int split = 1; split < length; split++) {
+                    int left = cell(n, i, split);
+                    int right = cell(n, i + split, length - split);
+                    for (int w = 0; w < words; w++) {
+                        for (long bits = table[left + w]; bits != 0; bits &= bits - 1) {
+                            int b = (w << 6) + Long.numberOfTrailingZeros(bits);
+                            combine(b, right, out, variables);
+                        }
+                    }
+                }
+            }
+        }
+
+        return get(table, cell(n, 0, n), start);
+    }
+
+    /**
+     * Add the heads of every rule A -> BC, where C derives the right part,
+     * to a cell.
+     * @param b the variable deriving the left part.
+     * @param right the offset of the cell for the right part.
+     * @param out the offset of the cell to add to.
+     * @param variables the number of variables.
+     */
+    private void combine(int b, int right, int out, int variables) {
+        int rights = b * words;
+        for (int w = 0; w < words; w++) {
+            for (long bits = table[right + w] & rightsOf[rights + w]; bits != 0; bits &= bits - 1) {
+                int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+                int from = pairIndex[b * variables + c] * words;
+                for (int x = 0; x < words; x++) table[out + x] |= heads[from + x];
+            }
+        }
+    }
+
+    /**
+     * Find the offset of a cell in the table.
+     * @param n the length of the string.
+     * @param i the start of the substring.
+     * @param length the length of the substring.
+     * @return the offset of the first long of the cell.
+     */
+    private int cell(int n, int i, int length) {
+        return (i * n + length - 1) * words;
+    }
+
+    private static void set(long[] bits, int offset, int index) {
+        bits[offset + (index >>> 6)] |= 1L << index;
+    }
+
+    private static boolean get(long[] bits, int offset, int index) {
+        return (bits[offset + (index >>> 6)] & (1L << index)) != 0;
+    }
+}
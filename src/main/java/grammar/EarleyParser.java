@@ -0,0 +1,251 @@
+package grammar;
+
+import automata.exception.AlphabetException;
+import grammar.components.CompiledGrammar;
+
+import java.util.Arrays;
+
+/**
+ * Decides membership in the language of any {@link CFG} with Earley's
+ * algorithm. <br>
+ * The parser reads the string one symbol at a time, keeping for each position
+ * i a set of <i>items</i>: a rule, how much of the rule has been matched so
+ * far (the "dot"), and the position the match began at. Each set is built by
+ * three operations, until nothing new is added:
+ * <ul>
+ *     <li>Predict: an item waiting on a variable adds every rule of the variable, starting at i.</li>
+ *     <li>Scan: an item waiting on the next input symbol moves into set i+1.</li>
+ *     <li>Complete: a finished rule for a variable advances every item that was waiting on it.</li>
+ * </ul>
+ * The string is accepted iff the last set has a finished rule of the start
+ * variable that began at position 0. This handles every grammar, including
+ * ambiguous and left-recursive ones, in O(n³) time at worst, O(n²) for
+ * unambiguous grammars and linear time for most practical ones.
+ * <p>
+ * Empty rules are handled as described by Aycock and Horspool: predicting a
+ * nullable variable also advances past it immediately.
+ * @implNote An item is coded as a single long: the position it began at in
+ * the high half, and the low half numbering the (rule, dot) pair, where the
+ * positions of rule r are numbered from <c>dotStart[r]</c>. Each set also
+ * chains together the items waiting on each variable, so completion only
+ * visits the items it advances.
+ */
+public class EarleyParser {
+    /** The element after the dot of a finished rule. */
+    private static final int DONE = Integer.MAX_VALUE;
+
+    /** The grammar being parsed. */
+    private final CompiledGrammar grammar;
+    /** The number of the first (rule, dot) pair of each rule. */
+    private final int[] dotStart;
+    /** The rule each (rule, dot) pair belongs to. */
+    private final int[] ruleOf;
+    /** The element after the dot for each (rule, dot) pair, or DONE. */
+    private final int[] next;
+
+    /**
+     * Create a parser for a grammar.
+     * @param grammar the grammar to parse with.
+     */
+    public EarleyParser(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        int rules = grammar.ruleCount();
+        dotStart = new int[rules + 1];
+        for (int r = 0; r < rules; r++) dotStart[r + 1] = dotStart[r] + grammar.length(r) + 1;
+        ruleOf = new int[dotStart[rules]];
+        next = new int[dotStart[rules]];
+        for (int r = 0; r < rules; r++) {
+            int length = grammar.length(r);
+            for (int dot = 0; dot <= length; dot++) {
+                ruleOf[dotStart[r] + dot] = r;
+                next[dotStart[r] + dot] = dot < length ? grammar.element(r, dot) : DONE;
+            }
+        }
+    }
+
+    /**
+     * Determine if a string is in the language of the grammar.
+     * @param string the string to parse.
+     * @return true iff the start variable can derive the string.
+     * @throws AlphabetException if the string contains a symbol that is not
+     * a terminal of the grammar.
+     */
+    public boolean accepts(CharSequence string) {
+        int n = string.length();
+        ItemSet[] sets = new ItemSet[n + 1];
+        for (int i = 0; i <= n; i++) sets[i] = new ItemSet(grammar.variableCount());
+
+        int start = grammar.startVariable();
+        for (int r = grammar.firstRule(start); r < grammar.endRule(start); r++) add(sets[0], item(dotStart[r], 0));
+
+        for (int i = 0; i <= n; i++) {
+            char symbol = 0;
+            if (i < n) {
+                symbol = string.charAt(i);
+                if (!grammar.isTerminal(symbol)) {
+                    String msg = String.format(
+                            "String '%s' contains symbol '%c' not in Grammar's alphabet.",
+                            string, symbol
+                    );
+                    throw new AlphabetException(msg);
+                }
+            }
+
+            ItemSet set = sets[i];
+            if (set.size == 0) return false;
+            for (int k = 0; k < set.size; k++) {
+                long item = set.items[k];
+                int dotted = (int) item;
+                int origin = (int) (item >>> 32);
+                int after = next[dotted];
+
+                if (after == DONE) {
+                    // Complete: advance everything in the origin set waiting on this variable.
+                    ItemSet from = sets[origin];
+                    for (int j = from.firstWaiting(grammar.lhs(ruleOf[dotted])); j >= 0; j = from.nextWaiting(j)) {
+                        add(set, from.items[j] + 1);
+                    }
+                } else if (CompiledGrammar.isVariable(after)) {
+                    // Predict every rule of the variable, and skip it if it can be empty.
+                    int variable = ~after;
+                    for (int r = grammar.firstRule(variable); r < grammar.endRule(variable); r++) {
+                        add(set, item(dotStart[r], i));
+                    }
+                    if (grammar.isNullable(variable)) add(set, item + 1);
+                } else if (i < n && after == symbol) {
+                    // Scan the next symbol.
+                    add(sets[i + 1], item + 1);
+                }
+            }
+        }
+
+        ItemSet last = sets[n];
+        for (int k = 0; k < last.size; k++) {
+            long item = last.items[k];
+            int dotted = (int) item;
+            if (next[dotted] == DONE && (item >>> 32) == 0 && grammar.lhs(ruleOf[dotted]) == start) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add an item to a set, if it is not already present.
+     * @param set the set to add to.
+     * @param item the item to add.
+     */
+    private void add(ItemSet set, long item) {
+        int after = next[(int) item];
+        set.add(item, CompiledGrammar.isVariable(after) ? ~after : -1);
+    }
+
+    /**
+     * Code an item.
+     * @param dotted the number of the (rule, dot) pair.
+     * @param origin the position the item began at.
+     * @return the item as a long.
+     */
+    private static long item(int dotted, int origin) {
+        return ((long) origin << 32) | dotted;
+    }
+
+    /**
+     * An insertion-ordered set of items, used as both the Earley set and its
+     * worklist: new items are appended, and processing walks the list.
+     */
+    private static class ItemSet {
+        /** The items, in the order they were added. */
+        long[] items = new long[8];
+        /** The number of items. */
+        int size;
+        /** The number of variables in the grammar. */
+        private final int variables;
+        /** The index of the first and last item waiting on each variable, or -1. */
+        private int[] firstWaiting, lastWaiting;
+        /** The index of the next item waiting on the same variable, or -1. */
+        private int[] nextWaiting = new int[8];
+        /** An open-addressing hash table of the items, for deduplication. */
+        private long[] table = new long[16];
+        /** Whether each slot of the table is in use. */
+        private boolean[] used = new boolean[16];
+
+        ItemSet(int variables) {
+            this.variables = variables;
+        }
+
+        /**
+         * Add an item, if it is not already present.
+         * @param item the item to add.
+         * @param waitsOn the variable after the item's dot, or -1 if there is
+         *                none.
+         */
+        void add(long item, int waitsOn) {
+            int mask = table.length - 1;
+            int slot = hash(item) & mask;
+            while (used[slot]) {
+                if (table[slot] == item) return;
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            table[slot] = item;
+
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                nextWaiting = Arrays.copyOf(nextWaiting, size * 2);
+            }
+            if (waitsOn >= 0) chain(waitsOn, size);
+            items[size++] = item;
+            if (2 * size > table.length) rehash();
+        }
+
+        /**
+         * Append an item to the chain of items waiting on a variable.
+         * @param variable the variable the item waits on.
+         * @param index the index of the item.
+         */
+        private void chain(int variable, int index) {
+            if (firstWaiting == null) {
+                firstWaiting = new int[variables];
+                lastWaiting = new int[variables];
+                Arrays.fill(firstWaiting, -1);
+            }
+            nextWaiting[index] = -1;
+            if (firstWaiting[variable] < 0) firstWaiting[variable] = index;
+            else nextWaiting[lastWaiting[variable]] = index;
+            lastWaiting[variable] = index;
+        }
+
+        /**
+         * @param variable a variable of the grammar.
+         * @return the index of the first item waiting on the variable, or -1.
+         */
+        int firstWaiting(int variable) {
+            return firstWaiting == null ? -1 : firstWaiting[variable];
+        }
+
+        /**
+         * @param index the index of an item waiting on some variable.
+         * @return the index of the next item waiting on the same variable, or
+         * -1.
+         */
+        int nextWaiting(int index) {
+            return nextWaiting[index];
+        }
+
+        private void rehash() {
+            table = new long[table.length * 2];
+            used = new boolean[table.length];
+            int mask = table.length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = hash(items[i]) & mask;
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                table[slot] = items[i];
+            }
+        }
+
+        private static int hash(long item) {
+            long h = item * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package grammar;
+
+import automata.exception.AlphabetException;
+import automata.exception.InvalidGrammarException;
+import grammar.components.CompiledGrammar;
+import grammar.components.GrammarAnalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Decides membership in the language of an LL(1) grammar in a single
+ * deterministic pass. <br>
+ * A grammar is LL(1) if, whenever a variable is to be expanded, the next
+ * input symbol is enough to choose the rule: rule <c>A -> w</c> is chosen on
+ * every terminal in FIRST(w), and if w can be empty, on every terminal in
+ * FOLLOW(A) too. These choices form the parse table, with a row for each
+ * variable and a column for each terminal and for the end of the input; two
+ * rules for the same cell are a conflict, and mean the grammar is not LL(1).
+ * Left-recursive and ambiguous grammars always have conflicts.
+ * <p>
+ * The parser keeps a stack of what remains to be matched, starting with the
+ * start variable. A terminal on top must match the next symbol; a variable
+ * on top is replaced by the right side of the rule in its cell for the next
+ * symbol. The string is accepted iff the stack and input run out together,
+ * which takes time linear in the length of the string.
+ * @implNote The table is a flat int array of rule numbers, indexed by
+ * <c>variable * columns + terminal</c>, and the stack is an int array of
+ * elements coded as in {@link CompiledGrammar}.
+ */
+public class LL1Parser {
+    /** A cell of the parse table with no rule. */
+    private static final int ERROR = -1;
+
+    /**
+     * Two rules that the parse table would need to choose between.
+     * @param variable The number of the variable being expanded.
+     * @param terminal The number of the next terminal, or the number of
+     *                 terminals for the end of the input.
+     * @param rule The rule already in the cell.
+     * @param other The rule that conflicts with it.
+     */
+    public record Conflict(int variable, int terminal, int rule, int other) {}
+
+    /** The grammar being parsed. */
+    private final CompiledGrammar grammar;
+    /** The number of columns in the table: one per terminal, then the end. */
+    private final int columns;
+    /** The rule to expand for each variable and next terminal. */
+    private final int[] table;
+    /** The conflicts found while building the table. */
+    private final List<Conflict> conflicts = new ArrayList<>();
+    /** The right side of rule r is rhs[rhsStart[r] .. rhsStart[r+1]). */
+    private final int[] rhsStart;
+    /** The right sides of every rule, end to end, as coded elements. */
+    private final int[] rhs;
+
+    /**
+     * Build the parse table for a grammar.
+     * @param grammar the grammar to parse with.
+     * @throws InvalidGrammarException if the grammar is not LL(1).
+     * @see #conflicts(CompiledGrammar)
+     */
+    public LL1Parser(CompiledGrammar grammar) {
+        this(grammar, true);
+    }
+
+    private LL1Parser(CompiledGrammar grammar, boolean strict) {
+        this.grammar = grammar;
+        this.columns = grammar.terminalCount() + 1;
+        this.table = new int[grammar.variableCount() * columns];
+        Arrays.fill(table, ERROR);
+
+        int rules = grammar.ruleCount();
+        rhsStart = new int[rules + 1];
+        for (int r = 0; r < rules; r++) rhsStart[r + 1] = rhsStart[r] + grammar.length(r);
+        rhs = new int[rhsStart[rules]];
+        for (int r = 0; r < rules; r++) {
+            for (int i = 0; i < grammar.length(r); i++) rhs[rhsStart[r] + i] = grammar.element(r, i);
+        }
+
+        GrammarAnalysis analysis = new GrammarAnalysis(grammar);
+        for (int r = 0; r < rules; r++) {
+            int a = grammar.lhs(r);
+            BitSet lookahead = analysis.firstOfRule(r);
+            if (analysis.isNullableRule(r)) lookahead.or(analysis.follow(a));
+            for (int t = lookahead.nextSetBit(0); t >= 0; t = lookahead.nextSetBit(t + 1)) {
+                int cell = a * columns + t;
+                if (table[cell] == ERROR) table[cell] = r;
+                else conflicts.add(new Conflict(a, t, table[cell], r));
+            }
+        }
+
+        if (strict && !conflicts.isEmpty()) {
+            String msg = String.format(
+                    "Grammar is not LL(1): %d conflicts, the first %s.",
+                    conflicts.size(), describe(conflicts.get(0))
+            );
+            throw new InvalidGrammarException(msg);
+        }
+    }
+
+    /**
+     * Find every conflict in the parse table of a grammar.
+     * @param grammar the grammar to check.
+     * @return the conflicts, in the order they were found; empty iff the
+     * grammar is LL(1).
+     */
+    public static List<Conflict> conflicts(CompiledGrammar grammar) {
+        return List.copyOf(new LL1Parser(grammar, false).conflicts);
+    }
+
+    /**
+     * Describe a conflict in terms of the grammar's variables and terminals.
+     * @param conflict the conflict to describe.
+     * @return a description of the conflict.
+     */
+    public String describe(Conflict conflict) {
+        String next = conflict.terminal() == grammar.terminalCount()
+                ? "the end of input"
+                : "'" + grammar.terminal(conflict.terminal()) + "'";
+        return String.format(
+                "%s has rules %s and %s on %s",
+                grammar.variable(conflict.variable()),
+                grammar.decode(grammar.rule(conflict.rule())),
+                grammar.decode(grammar.rule(conflict.other())),
+                next
+        );
+    }
+
+    /**
+     * Determine if a string is in the language of the grammar.
+     * @param string the string to parse.
+     * @return true iff the start variable can derive the string.
+     * @throws AlphabetException if the string contains a symbol that is not
+     * a terminal of the grammar.
+     */
+    public boolean accepts(CharSequence string) {
+        int n = string.length();
+        int end = grammar.terminalCount();
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = ~grammar.startVariable();
+
+        int i = 0;
+        int column = column(string, i);
+        while (size > 0) {
+            int top = stack[--size];
+            if (!CompiledGrammar.isVariable(top)) {
+                if (column == end || top != string.charAt(i)) return false;
+                column = column(string, ++i);
+                continue;
+            }
+
+            int rule = table[~top * columns + column];
+            if (rule == ERROR) return false;
+            int length = rhsStart[rule + 1] - rhsStart[rule];
+            if (size + length > stack.length) stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + length));
+            for (int k = rhsStart[rule + 1] - 1; k >= rhsStart[rule]; k--) stack[size++] = rhs[k];
+        }
+        return i == n;
+    }
+
+    /**
+     * Find the column of the table for the symbol at a position.
+     * @param string the string being parsed.
+     * @param i the position of the symbol.
+     * @return the terminal number of the symbol, or the number of terminals
+     * at the end of the string.
+     */
+    private int column(CharSequence string, int i) {
+        if (i == string.length()) return grammar.terminalCount();
+        char c = string.charAt(i);
+        int column = grammar.terminalIndex(c);
+        if (column < 0) {
+            String msg = String.format(
+                    "String '%s' contains symbol '%c' not in Grammar's alphabet.",
+                    string, c
+            );
+            throw new AlphabetException(msg);
+        }
+        return column;
+    }
+}
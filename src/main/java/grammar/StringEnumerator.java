@@ -0,0 +1,262 @@
+package grammar;
+
+import automata.components.PersistentStack;
+import grammar.components.CompiledGrammar;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lists the strings of a CFG's language, shortest first, and in alphabetical
+ * order among strings of the same length. <br>
+ * The grammar is converted to {@link CFG#toCNF() Chomsky Normal Form}, and
+ * for each length in turn, the strings are found by a depth-first search
+ * over their terminal prefixes. Each prefix carries the set of leftmost
+ * sentential forms that can produce it, kept as only the stack of variables
+ * still to be expanded; the forms for a prefix one symbol longer come from
+ * expanding only the leftmost variable of each form until it produces that
+ * symbol. A form is dropped as soon as its variables cannot fit in the
+ * remaining length, since every variable of a grammar in Chomsky Normal Form
+ * produces at least one symbol. A prefix of the full length is a string of
+ * the language iff one of its forms has nothing left to expand.
+ * <p>
+ * Forms that reach the same prefix with the same variables left are merged,
+ * so ambiguous grammars do not repeat work for each derivation, and every
+ * string is listed once. Only the prefixes along one path, and their
+ * siblings, are held at a time, so memory depends on the length of the
+ * strings rather than how many have been listed.
+ * <p>
+ * The prefixes waiting to be searched are the frontier of the search, and
+ * can be split off to search in parallel: {@link #trySplit()} hands over the
+ * shallowest half of them, which hold the most work, or a whole length when
+ * there are none. Since the subtrees of different prefixes hold different
+ * strings, the strings are distinct even across threads. The order above
+ * only holds when searching sequentially.
+ */
+class StringEnumerator implements Spliterator<String> {
+    /**
+     * A leftmost sentential form, without its terminal prefix.
+     * @param pending The variables still to expand, leftmost on top.
+     * @param minimum The length of the shortest string the variables produce.
+     */
+    private record Form(PersistentStack<Integer> pending, int minimum) {}
+
+    /** The grammar, in Chomsky Normal Form. */
+    private final CompiledGrammar grammar;
+    /** The terminals, in ascending order. */
+    private final char[] terminals;
+    /** The length of the shortest string each variable produces. */
+    private final int[] shortest;
+    /** Whether the start variable produces the empty string. */
+    private final boolean acceptsEmpty;
+    /** The longest strings to list. */
+    private final int maxLength;
+
+    /**
+     * A prefix waiting to be searched.
+     * @param prefix The symbols of the prefix.
+     * @param length The length of the strings being searched for.
+     * @param forms The forms that can produce the prefix.
+     */
+    private record Prefix(String prefix, int length, Set<Form> forms) {}
+
+    /** The prefixes waiting to be searched, next first. */
+    private final ArrayDeque<Prefix> frontier = new ArrayDeque<>();
+    /** The next length to start searching, if not more than {@link #maxLength}. */
+    private long nextLength = 0;
+
+    /**
+     * Create an enumerator for a CFG.
+     * @param cfg the grammar to list the strings of.
+     * @param maxLength the longest strings to list. Lists every string if
+     *                  {@link Integer#MAX_VALUE}.
+     */
+    StringEnumerator(CFG cfg, int maxLength) {
+        this.grammar = cfg.toCNF().compile();
+        this.terminals = grammar.terminals();
+
+        int variables = grammar.variableCount();
+        boolean empty = false;
+        for (int r = 0; r < grammar.ruleCount(); r++) empty |= grammar.length(r) == 0;
+        this.acceptsEmpty = empty;
+
+        // The shortest and longest strings of each variable, by fixpoint. The
+        // longest only settle within one round per variable if the language is
+        // finite.
+        shortest = new int[variables];
+        long[] longest = new long[variables];
+        Arrays.fill(shortest, Integer.MAX_VALUE);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < grammar.ruleCount(); r++) {
+                int yield = shortestOf(r, shortest);
+                if (yield < shortest[grammar.lhs(r)]) {
+                    shortest[grammar.lhs(r)] = yield;
+                    changed = true;
+                }
+            }
+        }
+        boolean finite = false;
+        for (int round = 0; round <= variables && !finite; round++) {
+            finite = true;
+            for (int r = 0; r < grammar.ruleCount(); r++) {
+                long yield = grammar.length(r) == 2
+                        ? longest[~grammar.element(r, 0)] + longest[~grammar.element(r, 1)]
+                        : grammar.length(r);
+                if (yield > longest[grammar.lhs(r)]) {
+                    longest[grammar.lhs(r)] = yield;
+                    finite = false;
+                }
+            }
+        }
+        this.maxLength = finite
+                ? (int) Math.min(maxLength, longest[grammar.startVariable()])
+                : maxLength;
+    }
+
+    /**
+     * Create an enumerator for part of the search of another.
+     * @param parent the enumerator to share the grammar of.
+     */
+    private StringEnumerator(StringEnumerator parent) {
+        this.grammar = parent.grammar;
+        this.terminals = parent.terminals;
+        this.shortest = parent.shortest;
+        this.acceptsEmpty = parent.acceptsEmpty;
+        this.maxLength = parent.maxLength;
+        this.nextLength = (long) maxLength + 1;
+    }
+
+    /**
+     * Determine the length of the shortest string a rule produces.
+     * @param rule the number of the rule.
+     * @param shortest the shortest string of each variable found so far.
+     * @return the length, or {@link Integer#MAX_VALUE} if not yet known.
+     */
+    private int shortestOf(int rule, int[] shortest) {
+        if (grammar.length(rule) < 2) return grammar.length(rule);
+        long yield = (long) shortest[~grammar.element(rule, 0)] + shortest[~grammar.element(rule, 1)];
+        return (int) Math.min(yield, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        while (true) {
+            Prefix next = frontier.pollFirst();
+            if (next == null) {
+                if (nextLength > maxLength) return false;
+                frontier.add(root((int) nextLength++));
+                continue;
+            }
+            if (next.prefix().length() < next.length()) {
+                expand(next);
+                continue;
+            }
+            for (Form form : next.forms()) {
+                if (form.pending().isEmpty()) {
+                    action.accept(next.prefix());
+                    return true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        if (frontier.isEmpty() && nextLength <= maxLength) {
+            StringEnumerator out = new StringEnumerator(this);
+            out.frontier.add(root((int) nextLength++));
+            return out;
+        }
+        if (frontier.size() == 1 && frontier.peek().prefix().length() < frontier.peek().length()) {
+            expand(frontier.poll());
+        }
+        if (frontier.size() < 2) return null;
+
+        // The last prefixes are the shallowest, so they have the most left to search.
+        StringEnumerator out = new StringEnumerator(this);
+        for (int i = frontier.size() / 2; i > 0; i--) out.frontier.addFirst(frontier.pollLast());
+        return out;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL;
+    }
+
+    /**
+     * Create the prefix that begins the search for strings of a length.
+     * @param length the length of the strings.
+     * @return the empty prefix, with the start variable as its only form.
+     */
+    private Prefix root(int length) {
+        int start = grammar.startVariable();
+        if (length == 0) {
+            Set<Form> forms = acceptsEmpty ? Set.of(new Form(PersistentStack.empty(), 0)) : Set.of();
+            return new Prefix("", 0, forms);
+        }
+        return new Prefix("", length, Set.of(new Form(PersistentStack.<Integer>empty().push(start), shortest[start])));
+    }
+
+    /**
+     * Replace a prefix at the front of the frontier with every prefix one
+     * symbol longer that can still be completed, in alphabetical order.
+     * @param prefix the prefix to expand.
+     */
+    private void expand(Prefix prefix) {
+        int produced = prefix.prefix().length() + 1;
+        for (int i = terminals.length - 1; i >= 0; i--) {
+            Set<Form> forms = step(prefix.forms(), terminals[i], produced, prefix.length());
+            if (!forms.isEmpty()) {
+                frontier.addFirst(new Prefix(prefix.prefix() + terminals[i], prefix.length(), forms));
+            }
+        }
+    }
+
+    /**
+     * Find the forms for a prefix extended by one symbol.
+     * @param from the forms of the current prefix.
+     * @param symbol the symbol to extend the prefix with.
+     * @param produced the length of the extended prefix.
+     * @param length the length of the strings being searched for.
+     * @return the forms of the extended prefix whose variables still fit in
+     * the length.
+     */
+    private Set<Form> step(Set<Form> from, char symbol, int produced, int length) {
+        Set<Form> out = new HashSet<>();
+        Set<Form> seen = new HashSet<>(from);
+        ArrayDeque<Form> toExpand = new ArrayDeque<>(from);
+        while (!toExpand.isEmpty()) {
+            Form form = toExpand.poll();
+            if (form.pending().isEmpty()) continue;
+            int a = form.pending().peek();
+            PersistentStack<Integer> rest = form.pending().pop();
+            int restMinimum = form.minimum() - shortest[a];
+
+            for (int r = grammar.firstRule(a); r < grammar.endRule(a); r++) {
+                if (grammar.length(r) == 1) {
+                    if (grammar.element(r, 0) == symbol) out.add(new Form(rest, restMinimum));
+                } else if (grammar.length(r) == 2) {
+                    int b = ~grammar.element(r, 0);
+                    int c = ~grammar.element(r, 1);
+                    int minimum = restMinimum + shortest[b] + shortest[c];
+                    // The symbol is yet to be produced, so it takes one more.
+                    if (produced - 1 + minimum > length) continue;
+                    Form expanded = new Form(rest.push(c).push(b), minimum);
+                    if (seen.add(expanded)) toExpand.add(expanded);
+                }
+            }
+        }
+        return out;
+    }
+}
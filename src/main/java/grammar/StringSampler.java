@@ -0,0 +1,229 @@
+package grammar;
+
+import grammar.components.CompiledGrammar;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Counts the derivations of strings of a given length in a CFG, and draws
+ * strings of that length uniformly at random by derivation. <br>
+ * The grammar is converted to {@link CFG#toCNF() Chomsky Normal Form}, where
+ * every derivation of a string of length n > 1 begins with a rule
+ * <c>A -> BC</c> and a split of n into the lengths derived by B and C. So the
+ * number of derivations from A of length n is
+ * <pre>
+ *     #(A, 1) = the number of rules A -> a
+ *     #(A, n) = Σ over rules A -> BC, and 0 < k < n, of #(B, k)·#(C, n - k)
+ * </pre>
+ * which is filled in for every variable, from the shortest length up, in
+ * O(|R|·n²) arithmetic operations. A random string is then built top-down,
+ * picking each rule and split with probability proportional to the number of
+ * derivations it leads to, so every derivation is equally likely and no
+ * search is needed. Splits are tried alternately from the shortest left
+ * part and the shortest right part, which keeps the expected work to
+ * O(n log n) per string rather than O(n²).
+ * <p>
+ * Every derivation of an unambiguous grammar produces a different string, so
+ * for those grammars the counts are the number of strings in the language and
+ * the sampling is uniform over strings. An ambiguous grammar's strings are
+ * counted, and drawn, once for each of their derivations in the converted
+ * grammar.
+ * @implNote Counts are {@link BigInteger}s, since they grow exponentially with
+ * the length, and are computed on demand and kept for later calls. A sampler
+ * is not safe to use from several threads at once.
+ */
+public class StringSampler {
+    /** The grammar, in Chomsky Normal Form. */
+    private final CompiledGrammar grammar;
+    /** The rules A -> BC, as the numbers of A, B and C. */
+    private final int[] binaryLhs, left, right;
+    /** The number of each rule A -> BC, grouped by A. */
+    private final int[][] binaryRulesOf;
+    /** The terminals a of the rules A -> a, grouped by A. */
+    private final char[][] terminalsOf;
+    /** Whether the start variable produces the empty string. */
+    private final boolean acceptsEmpty;
+    /** The derivation counts of each variable, indexed by length then variable. */
+    private final List<BigInteger[]> counts = new ArrayList<>();
+
+    /**
+     * Create a sampler for a CFG.
+     * @param cfg the grammar to count and draw strings of.
+     */
+    public StringSampler(CFG cfg) {
+        grammar = cfg.toCNF().compile();
+        int variables = grammar.variableCount();
+
+        int binaryCount = 0;
+        int[] binaryPer = new int[variables];
+        int[] terminalPer = new int[variables];
+        boolean empty = false;
+        for (int r = 0; r < grammar.ruleCount(); r++) {
+            switch (grammar.length(r)) {
+                case 0 -> empty = true;
+                case 1 -> terminalPer[grammar.lhs(r)]++;
+                default -> {
+                    binaryPer[grammar.lhs(r)]++;
+                    binaryCount++;
+                }
+            }
+        }
+        acceptsEmpty = empty;
+
+        binaryLhs = new int[binaryCount];
+        left = new int[binaryCount];
+        right = new int[binaryCount];
+        binaryRulesOf = new int[variables][];
+        terminalsOf = new char[variables][];
+        for (int v = 0; v < variables; v++) {
+            binaryRulesOf[v] = new int[binaryPer[v]];
+            terminalsOf[v] = new char[terminalPer[v]];
+        }
+        Arrays.fill(binaryPer, 0);
+        Arrays.fill(terminalPer, 0);
+        int b = 0;
+        for (int r = 0; r < grammar.ruleCount(); r++) {
+            int a = grammar.lhs(r);
+            if (grammar.length(r) == 1) {
+                terminalsOf[a][terminalPer[a]++] = (char) grammar.element(r, 0);
+            } else if (grammar.length(r) == 2) {
+                binaryLhs[b] = a;
+                left[b] = ~grammar.element(r, 0);
+                right[b] = ~grammar.element(r, 1);
+                binaryRulesOf[a][binaryPer[a]++] = b++;
+            }
+        }
+    }
+
+    /**
+     * Count the derivations of strings of a length.
+     * @param length the length of the strings.
+     * @return the number of derivations of strings of that length, which is
+     * the number of such strings if the grammar is unambiguous.
+     */
+    public BigInteger count(int length) {
+        if (length == 0) return acceptsEmpty ? BigInteger.ONE : BigInteger.ZERO;
+        return countsOf(length)[grammar.startVariable()];
+    }
+
+    /**
+     * Draw a random string of a length, with every derivation of a string of
+     * that length equally likely.
+     * @param length the length of the string.
+     * @param random the source of randomness.
+     * @return a string in the language of the grammar.
+     * @throws NoSuchElementException if the language has no strings of that
+     * length.
+     */
+    public String sample(int length, Random random) {
+        if (count(length).signum() == 0) {
+            String msg = String.format("Language has no strings of length %d.", length);
+            throw new NoSuchElementException(msg);
+        }
+        char[] out = new char[length];
+        if (length == 0) return "";
+
+        // Each pending variable is (variable, position, length), built top-down.
+        int[] stack = new int[3 * length];
+        int size = 0;
+        stack[size++] = grammar.startVariable();
+        stack[size++] = 0;
+        stack[size++] = length;
+        while (size > 0) {
+            int n = stack[--size];
+            int at = stack[--size];
+            int a = stack[--size];
+            if (n == 1) {
+                char[] options = terminalsOf[a];
+                out[at] = options[random.nextInt(options.length)];
+                continue;
+            }
+
+            // Walk the (rule, split) choices until the random pick is used up.
+            // Splits are tried from both ends inwards, since most of the
+            // derivations of a long string put most of it on one side.
+            BigInteger pick = below(countsOf(n)[a], random);
+            choose:
+            for (int rule : binaryRulesOf[a]) {
+                for (int j = 0; j < n - 1; j++) {
+                    int k = (j & 1) == 0 ? 1 + (j >> 1) : n - 1 - (j >> 1);
+                    BigInteger ways = countsOf(k)[left[rule]].multiply(countsOf(n - k)[right[rule]]);
+                    if (pick.compareTo(ways) < 0) {
+                        stack[size++] = right[rule];
+                        stack[size++] = at + k;
+                        stack[size++] = n - k;
+                        stack[size++] = left[rule];
+                        stack[size++] = at;
+                        stack[size++] = k;
+                        break choose;
+                    }
+                    pick = pick.subtract(ways);
+                }
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * Provide an endless stream of random strings of a length.
+     * @param length the length of the strings.
+     * @param random the source of randomness.
+     * @return a stream of strings drawn by {@link #sample(int, Random)}.
+     * @throws NoSuchElementException if the language has no strings of that
+     * length.
+     */
+    public Stream<String> samples(int length, Random random) {
+        sample(length, random);
+        return Stream.generate(() -> sample(length, random));
+    }
+
+    /**
+     * Get the derivation counts of every variable for a length, computing
+     * those of shorter lengths first if needed.
+     * @param length the length, at least 1.
+     * @return the number of derivations of strings of that length from each
+     * variable.
+     */
+    private BigInteger[] countsOf(int length) {
+        if (counts.isEmpty()) counts.add(null);
+        for (int n = counts.size(); n <= length; n++) {
+            BigInteger[] row = new BigInteger[grammar.variableCount()];
+            Arrays.fill(row, BigInteger.ZERO);
+            if (n == 1) {
+                for (int v = 0; v < row.length; v++) row[v] = BigInteger.valueOf(terminalsOf[v].length);
+            } else {
+                for (int rule = 0; rule < binaryLhs.length; rule++) {
+                    BigInteger sum = row[binaryLhs[rule]];
+                    for (int k = 1; k < n; k++) {
+                        BigInteger l = counts.get(k)[left[rule]];
+                        BigInteger r = counts.get(n - k)[right[rule]];
+                        if (l.signum() != 0 && r.signum() != 0) sum = sum.add(l.multiply(r));
+                    }
+                    row[binaryLhs[rule]] = sum;
+                }
+            }
+            counts.add(row);
+        }
+        return counts.get(length);
+    }
+
+    /**
+     * Draw a number uniformly at random.
+     * @param bound the number of possible values.
+     * @param random the source of randomness.
+     * @return a number at least 0 and below the bound.
+     */
+    private static BigInteger below(BigInteger bound, Random random) {
+        BigInteger out;
+        do {
+            out = new BigInteger(bound.bitLength(), random);
+        } while (out.compareTo(bound) >= 0);
+        return out;
+    }
+}
@@ -1,6 +1,7 @@
 package grammar.components;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A string containing terminal symbols and nonterminal variables from a CFG.
@@ -19,6 +20,17 @@ public class CFString extends ArrayList<Element> implements Comparable<CFString>
         add(seed);
     }
 
+    /**
+     * Create a string of the provided elements, in order.
+     * @param elements The elements of the string. May be empty.
+     * @return a new string containing the elements.
+     */
+    public static CFString of(List<? extends Element> elements) {
+        CFString str = new CFString(elements.size());
+        str.addAll(elements);
+        return str;
+    }
+
     /**
      * Convert a string of alphabet symbols to a Context-Free String. The
      * conversion assumes uppercase characters are variables and lowercase
@@ -55,7 +67,7 @@ public class CFString extends ArrayList<Element> implements Comparable<CFString>
      * @return true iff the string does not contain any more variables.
      */
     public boolean isComplete() {
-        return stream().allMatch(x -> x.getClass() == Symbol.class);
+        return firstVariable() < 0;
     }
 
     public CFString cloneReplace(int index, CFString rule) {
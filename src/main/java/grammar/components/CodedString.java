@@ -0,0 +1,177 @@
+package grammar.components;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable string of terminals and variables, coded as ints the same way
+ * as in a {@link CompiledGrammar}: a terminal is its own <c>char</c> value,
+ * and variable v is <c>~v</c>. <br>
+ * Unlike a {@link CFString}, this is a single array with its hash code
+ * computed once, so hashing, comparing and checking for completeness never
+ * allocate or visit boxed elements. This makes it suited as a key of the
+ * sets and queues of sentential forms used by grammar transformations and
+ * searches.
+ * @see CompiledGrammar#encode(CFString)
+ * @see CompiledGrammar#decode(CodedString)
+ */
+public final class CodedString implements Comparable<CodedString> {
+    /** The empty string. */
+    public static final CodedString EMPTY = new CodedString(new int[0]);
+
+    /** The coded elements, in order. */
+    private final int[] elements;
+    /** The index of the first variable, or -1 if none exist. */
+    private final int firstVariable;
+    /** The number of terminals. */
+    private final int terminalCount;
+    /** The hash of the elements. */
+    private final int hash;
+
+    private CodedString(int[] elements) {
+        this.elements = elements;
+        int first = -1;
+        int terminals = 0;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (CompiledGrammar.isVariable(elements[i])) first = i;
+            else terminals++;
+        }
+        this.firstVariable = first;
+        this.terminalCount = terminals;
+        this.hash = Arrays.hashCode(elements);
+    }
+
+    /**
+     * Create a string of coded elements.
+     * @param elements the coded elements, in order. They are copied.
+     * @return a string of the elements.
+     */
+    public static CodedString of(int... elements) {
+        return elements.length == 0 ? EMPTY : new CodedString(elements.clone());
+    }
+
+    /**
+     * Get the number of elements in this string.
+     * @return the length of this string.
+     */
+    public int length() {
+        return elements.length;
+    }
+
+    /**
+     * Determine if this string has no elements.
+     * @return true iff the length is 0.
+     */
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    /**
+     * Get an element of this string.
+     * @param index the position of the element.
+     * @return the coded element.
+     */
+    public int get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Get part of this string.
+     * @param from the position of the first element to keep.
+     * @param to the position after the last element to keep.
+     * @return the elements between the positions.
+     */
+    public CodedString substring(int from, int to) {
+        return new CodedString(Arrays.copyOfRange(elements, from, to));
+    }
+
+    /**
+     * Get a copy of the elements of this string.
+     * @return a new array of the coded elements.
+     */
+    public int[] elements() {
+        return elements.clone();
+    }
+
+    /**
+     * Determine the index of the first variable in this string, if applicable.
+     * @return the index of the first variable, or -1 if none exist.
+     */
+    public int firstVariable() {
+        return firstVariable;
+    }
+
+    /**
+     * Get the number of terminals in this string.
+     * @return the number of elements that are not variables.
+     */
+    public int terminalCount() {
+        return terminalCount;
+    }
+
+    /**
+     * Determine if a string is complete -- if it cannot be edited further by
+     * variables.
+     * @return true iff the string does not contain any more variables.
+     */
+    public boolean isComplete() {
+        return firstVariable < 0;
+    }
+
+    /**
+     * Determine if this string contains any variable that is not in a set.
+     * @param variables the set of variable numbers to check against.
+     * @return true iff some variable of this string is missing from the set.
+     */
+    public boolean hasVariableOutside(BitSet variables) {
+        for (int i = Math.max(firstVariable, 0); i < elements.length; i++) {
+            if (CompiledGrammar.isVariable(elements[i]) && !variables.get(~elements[i])) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CodedString other)) return false;
+        return hash == other.hash && Arrays.equals(elements, other.elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Order strings the same way as {@link CFString#compareTo}: shorter
+     * strings first, then by their first differing element, with variables
+     * before terminals.
+     * @param o the string to compare to.
+     * @return a negative number, zero or a positive number as this string is
+     * before, the same as, or after the other.
+     */
+    @Override
+    public int compareTo(CodedString o) {
+        int out = Integer.compare(elements.length, o.elements.length);
+        for (int i = 0; out == 0 && i < elements.length; i++) {
+            int a = elements[i];
+            int b = o.elements[i];
+            if (CompiledGrammar.isVariable(a) && CompiledGrammar.isVariable(b)) {
+                out = Integer.compare(~a, ~b);
+            } else {
+                out = Integer.compare(a, b);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int e : elements) {
+            if (CompiledGrammar.isVariable(e)) sb.append('[').append(~e).append(']');
+            else sb.append((char) e);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,347 @@
+package grammar.components;
+
+import automata.exception.InvalidGrammarException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A {@link Grammar} flattened into integer arrays, for parsers and analyses
+ * that would otherwise spend their time hashing and comparing
+ * {@link Element}s. <br>
+ * Variables are numbered from 0 to n-1, in order of their names. Every
+ * element of a rule is coded as a single int: a terminal is its own
+ * <c>char</c> value, and variable v is <c>~v</c> (so every variable is
+ * negative). The rules are numbered so that the rules of each variable are
+ * consecutive, and the right-hand sides are stored end to end in one array.
+ * <p>
+ * This is a snapshot of the grammar at the time it was compiled.
+ */
+public class CompiledGrammar {
+    /** The variables, indexed by their numbers. */
+    private final Variable[] variables;
+    /** The number of each variable. */
+    private final HashMap<Variable, Integer> numbers = new HashMap<>();
+    /** The terminals, as chars. */
+    private final BitSet terminals = new BitSet();
+    /** The terminals in ascending order, numbering them from 0. */
+    private final char[] terminalList;
+    /** The number of the start variable. */
+    private final int start;
+    /** The rules of variable v are numbered rulesStart[v] .. rulesStart[v+1]. */
+    private final int[] rulesStart;
+    /** The variable on the left side of each rule. */
+    private final int[] lhs;
+    /** The right side of rule r is rhs[rhsStart[r] .. rhsStart[r+1]). */
+    private final int[] rhsStart;
+    /** The right sides of every rule, end to end, as coded elements. */
+    private final int[] rhs;
+    /** The variables that can derive the empty string. */
+    private final BitSet nullable;
+
+    /**
+     * Compile a grammar.
+     * @param variables The variables of the grammar. Variables that only
+     *                  appear in rules are added automatically.
+     * @param alphabet The terminal symbols of the grammar.
+     * @param grammar The rules of the grammar.
+     * @param start The start variable.
+     */
+    public CompiledGrammar(Set<Variable> variables, Set<Symbol> alphabet, Grammar grammar, Variable start) {
+        Set<Variable> allVariables = new TreeSet<>(variables);
+        allVariables.add(start);
+        allVariables.addAll(grammar.keySet());
+        for (Set<CFString> outputs : grammar.values()) {
+            for (CFString output : outputs) {
+                for (Element e : output) {
+                    if (e instanceof Variable v) allVariables.add(v);
+                }
+            }
+        }
+        this.variables = allVariables.toArray(new Variable[0]);
+        for (int v = 0; v < this.variables.length; v++) numbers.put(this.variables[v], v);
+        this.start = numbers.get(start);
+        for (Symbol symbol : alphabet) terminals.set(symbol.symbol());
+
+        List<int[]> bodies = new ArrayList<>();
+        List<Integer> heads = new ArrayList<>();
+        rulesStart = new int[this.variables.length + 1];
+        for (int v = 0; v < this.variables.length; v++) {
+            rulesStart[v] = bodies.size();
+            Set<CFString> outputs = grammar.get(this.variables[v]);
+            if (outputs == null) continue;
+            for (CFString output : new TreeSet<>(outputs)) {
+                int[] body = new int[output.size()];
+                for (int i = 0; i < body.length; i++) body[i] = code(output.get(i));
+                bodies.add(body);
+                heads.add(v);
+            }
+        }
+        rulesStart[this.variables.length] = bodies.size();
+
+        lhs = new int[bodies.size()];
+        rhsStart = new int[bodies.size() + 1];
+        for (int r = 0; r < lhs.length; r++) {
+            lhs[r] = heads.get(r);
+            rhsStart[r + 1] = rhsStart[r] + bodies.get(r).length;
+        }
+        rhs = new int[rhsStart[lhs.length]];
+        for (int r = 0; r < lhs.length; r++) {
+            System.arraycopy(bodies.get(r), 0, rhs, rhsStart[r], bodies.get(r).length);
+        }
+
+        terminalList = new char[terminals.cardinality()];
+        int t = 0;
+        for (int c = terminals.nextSetBit(0); c >= 0; c = terminals.nextSetBit(c + 1)) terminalList[t++] = (char) c;
+
+        nullable = computeNullable();
+    }
+
+    /**
+     * Code a single element of a rule.
+     * @param e the element.
+     * @return the char of a terminal, or ~v for variable number v.
+     */
+    private int code(Element e) {
+        if (e instanceof Variable v) return ~numbers.get(v);
+        char c = e instanceof Symbol symbol ? symbol.symbol() : e.toString().charAt(0);
+        terminals.set(c);
+        return c;
+    }
+
+    /**
+     * Find the variables that can derive the empty string, by repeatedly
+     * marking the heads of rules whose bodies are entirely nullable until
+     * nothing changes.
+     * @return the numbers of every nullable variable.
+     */
+    private BitSet computeNullable() {
+        BitSet out = new BitSet(variables.length);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < lhs.length; r++) {
+                if (out.get(lhs[r])) continue;
+                boolean allNullable = true;
+                for (int i = rhsStart[r]; i < rhsStart[r + 1] && allNullable; i++) {
+                    allNullable = isVariable(rhs[i]) && out.get(~rhs[i]);
+                }
+                if (allNullable) {
+                    out.set(lhs[r]);
+                    changed = true;
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Determine if a coded element is a variable.
+     * @param element the coded element.
+     * @return true iff it codes a variable; false if it is a terminal.
+     */
+    public static boolean isVariable(int element) {
+        return element < 0;
+    }
+
+    /**
+     * Get the number of variables.
+     * @return the number of variables; variable numbers are below this value.
+     */
+    public int variableCount() {
+        return variables.length;
+    }
+
+    /**
+     * Get the variable that a number refers to.
+     * @param variable the number of the variable.
+     * @return the variable with that number.
+     */
+    public Variable variable(int variable) {
+        return variables[variable];
+    }
+
+    /**
+     * Determine the number of a variable.
+     * @param variable the variable to look up.
+     * @return the number of the variable, or -1 if it is not in the grammar.
+     */
+    public int indexOf(Variable variable) {
+        return numbers.getOrDefault(variable, -1);
+    }
+
+    /**
+     * Get the number of the start variable.
+     * @return the start variable's number.
+     */
+    public int startVariable() {
+        return start;
+    }
+
+    /**
+     * Determine if a char is a terminal of the grammar.
+     * @param symbol the char to check.
+     * @return true iff the symbol is in the grammar's alphabet.
+     */
+    public boolean isTerminal(char symbol) {
+        return terminals.get(symbol);
+    }
+
+    /**
+     * Get every terminal of the grammar.
+     * @return the terminals, in ascending order.
+     */
+    public char[] terminals() {
+        return terminalList.clone();
+    }
+
+    /**
+     * Get the number of terminals.
+     * @return the number of terminals; terminal numbers are below this value.
+     */
+    public int terminalCount() {
+        return terminalList.length;
+    }
+
+    /**
+     * Determine the number of a terminal, its position in
+     * {@link #terminals()}.
+     * @param symbol the terminal to look up.
+     * @return the number of the terminal, or -1 if it is not in the grammar.
+     */
+    public int terminalIndex(char symbol) {
+        int index = Arrays.binarySearch(terminalList, symbol);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Get the terminal that a number refers to.
+     * @param terminal the number of the terminal.
+     * @return the terminal with that number.
+     */
+    public char terminal(int terminal) {
+        return terminalList[terminal];
+    }
+
+    /**
+     * Get the number of rules.
+     * @return the number of rules; rule numbers are below this value.
+     */
+    public int ruleCount() {
+        return lhs.length;
+    }
+
+    /**
+     * Get the number of the first rule of a variable. The rules of a
+     * variable are numbered consecutively.
+     * @param variable the number of the variable.
+     * @return the number of its first rule.
+     */
+    public int firstRule(int variable) {
+        return rulesStart[variable];
+    }
+
+    /**
+     * Get the number after the last rule of a variable.
+     * @param variable the number of the variable.
+     * @return one more than the number of its last rule.
+     */
+    public int endRule(int variable) {
+        return rulesStart[variable + 1];
+    }
+
+    /**
+     * Get the variable on the left side of a rule.
+     * @param rule the number of the rule.
+     * @return the number of the variable the rule replaces.
+     */
+    public int lhs(int rule) {
+        return lhs[rule];
+    }
+
+    /**
+     * Get the length of the right side of a rule.
+     * @param rule the number of the rule.
+     * @return the number of elements the rule produces.
+     */
+    public int length(int rule) {
+        return rhsStart[rule + 1] - rhsStart[rule];
+    }
+
+    /**
+     * Get an element from the right side of a rule.
+     * @param rule the number of the rule.
+     * @param index the position of the element in the rule.
+     * @return the coded element.
+     */
+    public int element(int rule, int index) {
+        return rhs[rhsStart[rule] + index];
+    }
+
+    /**
+     * Get the right side of a rule.
+     * @param rule the number of the rule.
+     * @return a new array of the rule's coded elements.
+     */
+    public int[] body(int rule) {
+        return Arrays.copyOfRange(rhs, rhsStart[rule], rhsStart[rule + 1]);
+    }
+
+    /**
+     * Get the right side of a rule as a coded string.
+     * @param rule the number of the rule.
+     * @return the rule's coded elements.
+     */
+    public CodedString rule(int rule) {
+        return CodedString.of(body(rule));
+    }
+
+    /**
+     * Code a string of this grammar's elements.
+     * @param string the string to code.
+     * @return the same string, with each element coded.
+     * @throws InvalidGrammarException if the string contains a variable that
+     * is not in this grammar.
+     */
+    public CodedString encode(CFString string) {
+        int[] out = new int[string.size()];
+        for (int i = 0; i < out.length; i++) {
+            Element e = string.get(i);
+            if (e instanceof Variable v && !numbers.containsKey(v)) {
+                String msg = String.format("String '%s' contains variable %s not in Grammar.", string, v);
+                throw new InvalidGrammarException(msg);
+            }
+            out[i] = e instanceof Variable v ? ~numbers.get(v)
+                    : e instanceof Symbol symbol ? symbol.symbol() : e.toString().charAt(0);
+        }
+        return CodedString.of(out);
+    }
+
+    /**
+     * Convert a coded string back to elements.
+     * @param string the coded string.
+     * @return the same string, with this grammar's variables and new symbols.
+     */
+    public CFString decode(CodedString string) {
+        List<Element> out = new ArrayList<>(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            int e = string.get(i);
+            out.add(isVariable(e) ? variables[~e] : new Symbol((char) e));
+        }
+        return CFString.of(out);
+    }
+
+    /**
+     * Determine if a variable can derive the empty string.
+     * @param variable the number of the variable.
+     * @return true iff the variable is nullable.
+     */
+    public boolean isNullable(int variable) {
+        return nullable.get(variable);
+    }
+}
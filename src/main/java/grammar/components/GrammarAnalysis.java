@@ -0,0 +1,292 @@
+package grammar.components;
+
+import java.util.BitSet;
+
+/**
+ * The standard fixpoint analyses of a {@link CompiledGrammar}, computed once
+ * and stored as bitsets:
+ * <ul>
+ *     <li>Nullable variables, which can derive the empty string.</li>
+ *     <li>Generating variables, which can derive some string of terminals.</li>
+ *     <li>Reachable variables, which can appear in a derivation from the start.</li>
+ *     <li>Useful variables, which are generating and reachable without
+ *     passing through rules that use non-generating variables.</li>
+ *     <li>FIRST sets: the terminals that can begin a string derived from a variable.</li>
+ *     <li>FOLLOW sets: the terminals that can come right after a variable in
+ *     a derivation from the start.</li>
+ * </ul>
+ * Each analysis repeats a pass over the rules until nothing changes. Sets of
+ * variables are indexed by variable number, and sets of terminals by
+ * {@link CompiledGrammar#terminalIndex terminal number}; in FOLLOW sets, the
+ * extra bit {@link #endOfInput()} marks that the string may end after the
+ * variable.
+ */
+public class GrammarAnalysis {
+    /** The grammar analyzed. */
+    private final CompiledGrammar grammar;
+    /** The variables that derive some string of terminals. */
+    private final BitSet generating;
+    /** The variables that can be reached from the start. */
+    private final BitSet reachable;
+    /** The variables that appear in some complete derivation from the start. */
+    private final BitSet useful;
+    /** The FIRST set of each variable. */
+    private final BitSet[] first;
+    /** The FOLLOW set of each variable. */
+    private final BitSet[] follow;
+
+    /**
+     * Analyze a grammar.
+     * @param grammar the grammar to analyze.
+     */
+    public GrammarAnalysis(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        this.generating = computeGenerating();
+        this.reachable = computeReachable(null);
+        this.useful = computeReachable(generating);
+        this.useful.and(generating);
+        this.first = computeFirst();
+        this.follow = computeFollow();
+    }
+
+    /**
+     * Find the variables with a rule whose variables are all generating,
+     * until nothing changes.
+     * @return the generating variables.
+     */
+    private BitSet computeGenerating() {
+        BitSet out = new BitSet(grammar.variableCount());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < grammar.ruleCount(); r++) {
+                int a = grammar.lhs(r);
+                if (out.get(a) || !allIn(r, 0, out)) continue;
+                out.set(a);
+                changed = true;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Find the variables that appear in some derivation from the start.
+     * @param allowed if not null, only follow rules whose variables are all
+     *                in this set.
+     * @return the reachable variables.
+     */
+    private BitSet computeReachable(BitSet allowed) {
+        BitSet out = new BitSet(grammar.variableCount());
+        int[] toVisit = new int[grammar.variableCount()];
+        int size = 0;
+        out.set(grammar.startVariable());
+        toVisit[size++] = grammar.startVariable();
+        while (size > 0) {
+            int v = toVisit[--size];
+            for (int r = grammar.firstRule(v); r < grammar.endRule(v); r++) {
+                if (allowed != null && !allIn(r, 0, allowed)) continue;
+                for (int i = 0; i < grammar.length(r); i++) {
+                    int e = grammar.element(r, i);
+                    if (CompiledGrammar.isVariable(e) && !out.get(~e)) {
+                        out.set(~e);
+                        toVisit[size++] = ~e;
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Determine if every variable in the rest of a rule is in a set.
+     * Terminals are ignored.
+     * @param rule the number of the rule.
+     * @param from the position in the rule to start from.
+     * @param variables the set of variables.
+     * @return true iff no variable from that position on is missing.
+     */
+    private boolean allIn(int rule, int from, BitSet variables) {
+        for (int i = from; i < grammar.length(rule); i++) {
+            int e = grammar.element(rule, i);
+            if (CompiledGrammar.isVariable(e) && !variables.get(~e)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compute the FIRST sets, by adding the FIRST set of each rule to its
+     * variable until nothing changes.
+     * @return the FIRST set of each variable.
+     */
+    private BitSet[] computeFirst() {
+        BitSet[] out = new BitSet[grammar.variableCount()];
+        for (int v = 0; v < out.length; v++) out[v] = new BitSet();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < grammar.ruleCount(); r++) {
+                BitSet target = out[grammar.lhs(r)];
+                int before = target.cardinality();
+                addFirst(out, r, 0, target);
+                changed |= target.cardinality() != before;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Add the FIRST set of the rest of a rule to a set.
+     * @param firsts the FIRST sets of the variables.
+     * @param rule the number of the rule.
+     * @param from the position in the rule to start from.
+     * @param out the set to add to.
+     * @return true iff the rest of the rule is nullable.
+     */
+    private boolean addFirst(BitSet[] firsts, int rule, int from, BitSet out) {
+        for (int i = from; i < grammar.length(rule); i++) {
+            int e = grammar.element(rule, i);
+            if (!CompiledGrammar.isVariable(e)) {
+                out.set(grammar.terminalIndex((char) e));
+                return false;
+            }
+            out.or(firsts[~e]);
+            if (!grammar.isNullable(~e)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compute the FOLLOW sets: every variable in a rule is followed by the
+     * FIRST set of the rest of the rule, and if that rest is nullable, by
+     * the FOLLOW set of the rule's variable. Repeated until nothing changes.
+     * @return the FOLLOW set of each variable.
+     */
+    private BitSet[] computeFollow() {
+        BitSet[] out = new BitSet[grammar.variableCount()];
+        for (int v = 0; v < out.length; v++) out[v] = new BitSet();
+        out[grammar.startVariable()].set(endOfInput());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < grammar.ruleCount(); r++) {
+                for (int i = 0; i < grammar.length(r); i++) {
+                    int e = grammar.element(r, i);
+                    if (!CompiledGrammar.isVariable(e)) continue;
+                    BitSet target = out[~e];
+                    int before = target.cardinality();
+                    if (addFirst(first, r, i + 1, target)) target.or(out[grammar.lhs(r)]);
+                    changed |= target.cardinality() != before;
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Get the bit that stands for the end of the input in FOLLOW sets.
+     * @return the number of terminals in the grammar.
+     */
+    public int endOfInput() {
+        return grammar.terminalCount();
+    }
+
+    /**
+     * Get the grammar that was analyzed.
+     * @return the grammar.
+     */
+    public CompiledGrammar grammar() {
+        return grammar;
+    }
+
+    /**
+     * Determine if a variable can derive the empty string.
+     * @param variable the number of the variable.
+     * @return true iff the variable is nullable.
+     */
+    public boolean isNullable(int variable) {
+        return grammar.isNullable(variable);
+    }
+
+    /**
+     * Determine if a variable can derive any string of terminals.
+     * @param variable the number of the variable.
+     * @return true iff the variable is generating.
+     */
+    public boolean isGenerating(int variable) {
+        return generating.get(variable);
+    }
+
+    /**
+     * Determine if a variable can appear in a derivation from the start.
+     * @param variable the number of the variable.
+     * @return true iff the variable is reachable.
+     */
+    public boolean isReachable(int variable) {
+        return reachable.get(variable);
+    }
+
+    /**
+     * Determine if a variable appears in a derivation of some string from
+     * the start.
+     * @param variable the number of the variable.
+     * @return true iff the variable is useful.
+     */
+    public boolean isUseful(int variable) {
+        return useful.get(variable);
+    }
+
+    /**
+     * Determine if a rule is useful: its variable is useful, and so is every
+     * variable it produces.
+     * @param rule the number of the rule.
+     * @return true iff the rule appears in a derivation of some string.
+     */
+    public boolean isUsefulRule(int rule) {
+        return useful.get(grammar.lhs(rule)) && allIn(rule, 0, useful);
+    }
+
+    /**
+     * Get the FIRST set of a variable.
+     * @param variable the number of the variable.
+     * @return a new set of the terminal numbers that can begin a string the
+     * variable derives.
+     */
+    public BitSet first(int variable) {
+        return (BitSet) first[variable].clone();
+    }
+
+    /**
+     * Get the FIRST set of the right side of a rule.
+     * @param rule the number of the rule.
+     * @return a new set of the terminal numbers that can begin a string the
+     * rule derives.
+     */
+    public BitSet firstOfRule(int rule) {
+        BitSet out = new BitSet();
+        addFirst(first, rule, 0, out);
+        return out;
+    }
+
+    /**
+     * Determine if the right side of a rule can derive the empty string.
+     * @param rule the number of the rule.
+     * @return true iff every element of the rule is a nullable variable.
+     */
+    public boolean isNullableRule(int rule) {
+        for (int i = 0; i < grammar.length(rule); i++) {
+            int e = grammar.element(rule, i);
+            if (!CompiledGrammar.isVariable(e) || !grammar.isNullable(~e)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the FOLLOW set of a variable.
+     * @param variable the number of the variable.
+     * @return a new set of the terminal numbers that can follow the variable,
+     * including {@link #endOfInput()} if the string can end after it.
+     */
+    public BitSet follow(int variable) {
+        return (BitSet) follow[variable].clone();
+    }
+}
@@ -1,7 +1,8 @@
 package grammar.components;
 
 /**
- * A terminal symbol in a CFG string.
+ * A terminal symbol in a CFG string. Symbols are equal iff they convert to
+ * the same character.
  */
 public class Symbol implements Element {
     /** A toString representation of this variable. */
@@ -15,6 +16,26 @@ public class Symbol implements Element {
         this.symbol = symbol;
     }
 
+    /**
+     * Get the character this symbol converts to.
+     * @return the terminal character this represents.
+     */
+    public char symbol() {
+        return symbol;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return symbol == ((Symbol) o).symbol;
+    }
+
+    @Override
+    public int hashCode() {
+        return Character.hashCode(symbol);
+    }
+
     public String toString() {
         return "" + symbol;
     }
@@ -24,6 +45,6 @@ public class Symbol implements Element {
         if (o.getClass() != Symbol.class) {
             return 1;
         }
-        return this.toString().compareTo(o.toString());
+        return Character.compare(symbol, ((Symbol) o).symbol);
     }
 }
@@ -51,6 +51,6 @@ public class Variable implements Element {
     @Override
     public int compareTo(Element o) {
         if (o.getClass() != Variable.class) return -1;
-        return this.toString().compareTo(o.toString());
+        return name.compareTo(((Variable) o).name);
     }
 }
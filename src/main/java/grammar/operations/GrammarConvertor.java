@@ -0,0 +1,267 @@
+package grammar.operations;
+
+import grammar.CFG;
+import grammar.components.CFString;
+import grammar.components.CodedString;
+import grammar.components.CompiledGrammar;
+import grammar.components.Element;
+import grammar.components.Grammar;
+import grammar.components.Symbol;
+import grammar.components.Variable;
+
+import java.util.*;
+
+/**
+ * Umbrella class for rewriting context-free grammars into equivalent forms.
+ */
+public class GrammarConvertor {
+    /**
+     * Convert a CFG to Chomsky Normal Form: every rule is either
+     * <c>A -> BC</c> for variables B and C, or <c>A -> a</c> for a terminal a,
+     * and the start variable may also produce the empty string. The start
+     * variable never appears on the right side of a rule. <br>
+     * This is done in the usual steps:
+     * <ol>
+     *     <li>START: add a new start variable that produces the old one.</li>
+     *     <li>TERM: replace terminals in longer rules with variables that only produce them.</li>
+     *     <li>BIN: split rules longer than 2 into chains of binary rules.</li>
+     *     <li>DEL: remove empty rules, adding copies of rules without each nullable variable.</li>
+     *     <li>UNIT: replace rules <c>A -> B</c> with the non-unit rules of B.</li>
+     *     <li>Remove variables that produce no string, or that cannot be reached.</li>
+     * </ol>
+     * Splitting rules before removing empty rules keeps the number of copies
+     * DEL adds to at most 3 per rule.
+     * @param cfg the CFG to convert.
+     * @return a CFG in Chomsky Normal Form with the same language. New
+     * variables have autogenerated names.
+     */
+    public static CFG toCNF(CFG cfg) {
+        CompiledGrammar compiled = cfg.compile();
+        Rules rules = new Rules(compiled);
+
+        // START
+        int start = rules.newVariable();
+        rules.add(start, CodedString.of(~compiled.startVariable()));
+
+        // TERM
+        HashMap<Integer, Integer> terminalVariables = new HashMap<>();
+        for (int v = 0; v < rules.size(); v++) {
+            Set<CodedString> replaced = new LinkedHashSet<>();
+            for (CodedString body : rules.of(v)) {
+                if (body.length() < 2) {
+                    replaced.add(body);
+                    continue;
+                }
+                int[] out = body.elements();
+                for (int i = 0; i < out.length; i++) {
+                    if (CompiledGrammar.isVariable(out[i])) continue;
+                    int t = terminalVariables.computeIfAbsent(out[i], c -> {
+                        int added = rules.newVariable();
+                        rules.add(added, CodedString.of(c));
+                        return added;
+                    });
+                    out[i] = ~t;
+                }
+                replaced.add(CodedString.of(out));
+            }
+            rules.set(v, replaced);
+        }
+
+        // BIN
+        for (int v = 0, n = rules.size(); v < n; v++) {
+            Set<CodedString> replaced = new LinkedHashSet<>();
+            for (CodedString body : rules.of(v)) {
+                if (body.length() <= 2) {
+                    replaced.add(body);
+                    continue;
+                }
+                int rest = rules.newVariable();
+                replaced.add(CodedString.of(body.get(0), ~rest));
+                for (int i = 1; i < body.length() - 2; i++) {
+                    int next = rules.newVariable();
+                    rules.add(rest, CodedString.of(body.get(i), ~next));
+                    rest = next;
+                }
+                rules.add(rest, body.substring(body.length() - 2, body.length()));
+            }
+            rules.set(v, replaced);
+        }
+
+        // DEL
+        BitSet nullable = rules.nullable();
+        for (int v = 0; v < rules.size(); v++) {
+            Set<CodedString> replaced = new LinkedHashSet<>();
+            for (CodedString body : rules.of(v)) {
+                if (body.length() == 2) {
+                    int first = body.get(0);
+                    int second = body.get(1);
+                    if (CompiledGrammar.isVariable(first) && nullable.get(~first)) replaced.add(CodedString.of(second));
+                    if (CompiledGrammar.isVariable(second) && nullable.get(~second)) replaced.add(CodedString.of(first));
+                }
+                if (!body.isEmpty()) replaced.add(body);
+            }
+            rules.set(v, replaced);
+        }
+        if (nullable.get(start)) rules.add(start, CodedString.EMPTY);
+
+        // UNIT
+        List<Set<CodedString>> expanded = new ArrayList<>();
+        for (int v = 0; v < rules.size(); v++) {
+            Set<CodedString> out = new LinkedHashSet<>();
+            BitSet seen = new BitSet();
+            ArrayDeque<Integer> toVisit = new ArrayDeque<>(List.of(v));
+            seen.set(v);
+            while (!toVisit.isEmpty()) {
+                for (CodedString body : rules.of(toVisit.poll())) {
+                    if (body.length() == 1 && CompiledGrammar.isVariable(body.get(0))) {
+                        int target = ~body.get(0);
+                        if (!seen.get(target)) {
+                            seen.set(target);
+                            toVisit.add(target);
+                        }
+                    } else {
+                        out.add(body);
+                    }
+                }
+            }
+            expanded.add(out);
+        }
+        for (int v = 0; v < rules.size(); v++) rules.set(v, expanded.get(v));
+
+        return rules.removeUseless(start).toCFG(cfg.alphabet(), start);
+    }
+
+    /**
+     * The rules of a grammar being rewritten, in the coding of
+     * {@link CompiledGrammar}, with room to add variables.
+     */
+    private static class Rules {
+        /** The variables, by number. */
+        private final List<Variable> variables = new ArrayList<>();
+        /** The right sides of the rules of each variable, by number. */
+        private final List<Set<CodedString>> bodies = new ArrayList<>();
+
+        Rules(CompiledGrammar grammar) {
+            for (int v = 0; v < grammar.variableCount(); v++) {
+                variables.add(grammar.variable(v));
+                Set<CodedString> out = new LinkedHashSet<>();
+                for (int r = grammar.firstRule(v); r < grammar.endRule(v); r++) out.add(grammar.rule(r));
+                bodies.add(out);
+            }
+        }
+
+        int size() {
+            return variables.size();
+        }
+
+        int newVariable() {
+            variables.add(new Variable());
+            bodies.add(new LinkedHashSet<>());
+            return variables.size() - 1;
+        }
+
+        Set<CodedString> of(int variable) {
+            return bodies.get(variable);
+        }
+
+        void set(int variable, Set<CodedString> rules) {
+            bodies.set(variable, rules);
+        }
+
+        void add(int variable, CodedString body) {
+            bodies.get(variable).add(body);
+        }
+
+        /**
+         * Find the variables whose rules can produce only other such
+         * variables and terminals, until nothing changes.
+         * @param nullable true to find the variables that derive the empty
+         *                 string, where terminals are not allowed; false to
+         *                 find the variables that derive any string at all.
+         * @return the numbers of the variables found.
+         */
+        private BitSet fixpoint(boolean nullable) {
+            BitSet out = new BitSet();
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int v = 0; v < size(); v++) {
+                    if (out.get(v)) continue;
+                    for (CodedString body : bodies.get(v)) {
+                        boolean all = !(nullable && body.terminalCount() > 0) && !body.hasVariableOutside(out);
+                        if (all) {
+                            out.set(v);
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            return out;
+        }
+
+        BitSet nullable() {
+            return fixpoint(true);
+        }
+
+        /**
+         * Drop every rule that uses a variable which produces no string, then
+         * every variable that cannot be reached from the start.
+         * @param start the number of the start variable.
+         * @return this.
+         */
+        Rules removeUseless(int start) {
+            BitSet generating = fixpoint(false);
+            for (int v = 0; v < size(); v++) {
+                bodies.get(v).removeIf(body -> body.hasVariableOutside(generating));
+            }
+
+            BitSet reachable = new BitSet();
+            ArrayDeque<Integer> toVisit = new ArrayDeque<>(List.of(start));
+            reachable.set(start);
+            while (!toVisit.isEmpty()) {
+                for (CodedString body : bodies.get(toVisit.poll())) {
+                    for (int i = 0; i < body.length(); i++) {
+                        int e = body.get(i);
+                        if (CompiledGrammar.isVariable(e) && !reachable.get(~e)) {
+                            reachable.set(~e);
+                            toVisit.add(~e);
+                        }
+                    }
+                }
+            }
+            for (int v = 0; v < size(); v++) {
+                if (!reachable.get(v)) bodies.get(v).clear();
+            }
+            return this;
+        }
+
+        /**
+         * Convert the rules back into a CFG, keeping only variables that have
+         * rules (and the start).
+         * @param alphabet the terminals of the CFG.
+         * @param start the number of the start variable.
+         * @return the CFG.
+         */
+        CFG toCFG(Set<Symbol> alphabet, int start) {
+            Grammar grammar = new Grammar();
+            Set<Variable> used = new HashSet<>();
+            used.add(variables.get(start));
+            for (int v = 0; v < size(); v++) {
+                if (bodies.get(v).isEmpty()) continue;
+                used.add(variables.get(v));
+                Set<CFString> outputs = new HashSet<>();
+                for (CodedString body : bodies.get(v)) {
+                    List<Element> elements = new ArrayList<>(body.length());
+                    for (int i = 0; i < body.length(); i++) {
+                        int e = body.get(i);
+                        elements.add(CompiledGrammar.isVariable(e) ? variables.get(~e) : new Symbol((char) e));
+                    }
+                    outputs.add(CFString.of(elements));
+                }
+                grammar.put(variables.get(v), outputs);
+            }
+            return new CFG(used, alphabet, grammar, variables.get(start));
+        }
+    }
+}